@@ -0,0 +1,121 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.CardManagmentApplication;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.TransferEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Пропускная способность переводов при пессимистичных и оптимистичных блокировках.
+ * Потоки переводят между случайными картами из горячего набора размером hotCards:
+ * 2 - все потоки спорят за одну пару карт, 256 - конфликты редки.
+ * Приложение поднимается на встроенной H2, поэтому важны относительные, а не абсолютные цифры.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CardLockingBenchmark {
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC"})
+    private String locking;
+
+    @Param({"2", "16", "256"})
+    private int hotCards;
+
+    private ConfigurableApplicationContext context;
+    private CardService cardService;
+    private TransferEngine transferEngine;
+    private Long[] cardIds;
+
+    /** Счетчики TransferEngine на начало итерации */
+    private long lockFailuresBefore;
+    private long versionConflictsBefore;
+    private long retriesBefore;
+    private final AtomicBoolean iterationCollected = new AtomicBoolean();
+
+    /**
+     * Исходы переводов за итерацию, JMH обнуляет поля перед каждой итерацией и суммирует по потокам.
+     * Счетчики TransferEngine общие для всех потоков, поэтому их прирост за итерацию записывает один поток.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        /** Переводы, не прошедшие после всех повторов */
+        public long failed;
+        public long lockFailures;
+        public long versionConflicts;
+        public long retries;
+
+        @TearDown(Level.Iteration)
+        public void collect(CardLockingBenchmark benchmark) {
+            if (benchmark.iterationCollected.compareAndSet(false, true)) {
+                TransferEngine engine = benchmark.transferEngine;
+                lockFailures = engine.getLockFailures() - benchmark.lockFailuresBefore;
+                versionConflicts = engine.getVersionConflicts() - benchmark.versionConflictsBefore;
+                retries = engine.getRetries() - benchmark.retriesBefore;
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CardManagmentApplication.class)
+                .profiles("h2")
+                .run(
+                        "--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--cards.slow-query.enabled=false",
+                        "--cards.pan.backfill.enabled=false",
+                        "--cards.transfer.locking=" + locking,
+                        "--cards.seed.users=1",
+                        "--cards.seed.cards-per-user=" + hotCards,
+                        "--cards.seed.initial-balance=1000000000");
+        cardService = context.getBean(CardService.class);
+        transferEngine = context.getBean(TransferEngine.class);
+
+        Long userId = context.getBean(UserRepository.class).findByNaturalUsername("user0").orElseThrow().getId();
+        List<Card> cards = context.getBean(CardRepository.class).findAllByUserId(userId);
+        cardIds = cards.stream().map(Card::getId).toArray(Long[]::new);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        lockFailuresBefore = transferEngine.getLockFailures();
+        versionConflictsBefore = transferEngine.getVersionConflicts();
+        retriesBefore = transferEngine.getRetries();
+        iterationCollected.set(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void transfer(Outcomes outcomes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(cardIds.length);
+        int to = (from + 1 + random.nextInt(cardIds.length - 1)) % cardIds.length;
+        try {
+            cardService.transfer(cardIds[from], cardIds[to], BigDecimal.ONE);
+        } catch (ConcurrencyFailureException e) {
+            outcomes.failed++;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.UserDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.Status;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Стоимость преобразования сущностей в DTO */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoBenchmark {
+
+    private Card card;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = User.builder()
+                .id(1L)
+                .username("user")
+                .password("hash")
+                .roles(Set.of(Role.ROLE_USER))
+                .build();
+        card = Card.builder()
+                .id(1L)
+                .number("4000123412341234")
+                .expirationDate(LocalDate.now().plusYears(3))
+                .status(Status.ACTIVE)
+                .balance(new BigDecimal("1500.00"))
+                .owner("user")
+                .user(user)
+                .build();
+    }
+
+    @Benchmark
+    public CardDTO cardFromEntity() {
+        return CardDTO.fromEntity(card);
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return CardDTO.maskCardNumber(card.getNumber());
+    }
+
+    @Benchmark
+    public UserDTO userFromEntity() {
+        return UserDTO.fromEntity(user);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.TokenVersionRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** Стоимость выдачи и разбора JWT на один запрос */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private static final String SECRET = "nfgQmmIhJzNDmTKydf3YQ1mAUgoyDzASxbkryvPcCoc=";
+
+    private JwtUtil cachedJwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private String token;
+    private String[] alternatingTokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cachedJwtUtil = jwtUtil(10_000);
+        // Кэш нулевого размера ничего не хранит: каждый разбор - промах с проверкой подписи
+        uncachedJwtUtil = jwtUtil(0);
+        token = cachedJwtUtil.generateToken(new HashMap<>(), "user", List.of("ROLE_USER"));
+        alternatingTokens = new String[]{
+                uncachedJwtUtil.generateToken(new HashMap<>(), "user1", List.of("ROLE_USER")),
+                uncachedJwtUtil.generateToken(new HashMap<>(), "user2", List.of("ROLE_USER"))
+        };
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachedJwtUtil.generateToken(new HashMap<>(), "user", List.of("ROLE_USER"));
+    }
+
+    @Benchmark
+    public String extractUsernameCached() {
+        return cachedJwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public String extractUsernameVerified() {
+        next ^= 1;
+        return uncachedJwtUtil.extractUsername(alternatingTokens[next]);
+    }
+
+    @Benchmark
+    public List<String> extractRolesCached() {
+        return cachedJwtUtil.extractRoles(token);
+    }
+
+    private static JwtUtil jwtUtil(int cacheSize) {
+        // Версия токенов без БД: бенчмарк измеряет только выдачу и разбор
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findTokenVersionByUsername(anyString())).thenReturn(Optional.of(0));
+        JwtUtil jwtUtil = new JwtUtil(new TokenVersionRegistry(userRepository, 3600, 1000));
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheMaxSize", cacheSize);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.BoundedPasswordEncoder;
+import com.example.bankcards.security.PasswordHashingRejectedException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка дешевого запроса (проверка баланса) в общем пуле "потоков Tomcat" во время всплеска логинов.
+ * Без ограничения BCrypt занимает все потоки и дешевые запросы ждут в очереди, с BoundedPasswordEncoder
+ * лишние логины сразу получают отказ. Сравнивать p99 режимов unbounded и bounded.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginStormBenchmark {
+
+    private static final int REQUEST_THREADS = 16;
+    /** Сколько логинов одновременно ожидает в пуле или выполняется */
+    private static final int OUTSTANDING_LOGINS = 64;
+
+    @Param({"unbounded", "bounded"})
+    private String encoderMode;
+
+    private ExecutorService requestThreads;
+    private BoundedPasswordEncoder bounded;
+    private volatile boolean stopped;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        String hash = bcrypt.encode("secret");
+        PasswordEncoder encoder = bcrypt;
+        if ("bounded".equals(encoderMode)) {
+            bounded = new BoundedPasswordEncoder(bcrypt, 2, 4, 5000);
+            encoder = bounded;
+        }
+
+        requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        Semaphore outstanding = new Semaphore(OUTSTANDING_LOGINS);
+        PasswordEncoder loginEncoder = encoder;
+        Thread.ofPlatform().daemon().name("login-storm").start(() -> {
+            while (!stopped) {
+                try {
+                    if (!outstanding.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        continue;
+                    }
+                    requestThreads.submit(() -> {
+                        try {
+                            loginEncoder.matches("secret", hash);
+                        } catch (PasswordHashingRejectedException ignored) {
+                            // 503 клиенту
+                        } finally {
+                            outstanding.release();
+                        }
+                    });
+                } catch (InterruptedException | RejectedExecutionException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    public Boolean cheapRequest() throws InterruptedException, ExecutionException {
+        return requestThreads.submit(() -> Boolean.TRUE).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stopped = true;
+        requestThreads.shutdownNow();
+        if (bounded != null) {
+            bounded.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bankcards.loadtest;
+
+import java.util.Arrays;
+
+/** Задержки одного эндпоинта в одном клиентском потоке, без синхронизации */
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    void record(long nanos, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    /** Объединить записи потоков в одну отсортированную выборку */
+    static Summary merge(Iterable<LatencyRecorder> recorders) {
+        int total = 0;
+        long errors = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+            errors += recorder.errors;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.latencies, 0, merged, offset, recorder.count);
+            offset += recorder.count;
+        }
+        Arrays.sort(merged);
+        return new Summary(merged, errors);
+    }
+
+    record Summary(long[] sortedNanos, long errors) {
+
+        int count() {
+            return sortedNanos.length;
+        }
+
+        /** Перцентиль в миллисекундах (nearest-rank) */
+        double percentileMillis(double percentile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+            return sortedNanos[Math.max(rank - 1, 0)] / 1_000_000.0;
+        }
+    }
+}
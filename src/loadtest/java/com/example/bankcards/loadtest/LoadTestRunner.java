@@ -0,0 +1,290 @@
+package com.example.bankcards.loadtest;
+
+import com.example.bankcards.CardManagmentApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Нагрузочный тест HTTP API.
+ * Поднимает приложение с профилем h2 и тестовыми данными, затем N клиентов выполняют
+ * смешанную нагрузку и печатают пропускную способность и p50/p99/p99.9 по каждому эндпоинту.
+ * Параметры (системные свойства):
+ * loadtest.clients, loadtest.duration-seconds, loadtest.warmup-seconds, loadtest.users,
+ * loadtest.cards-per-user, loadtest.mix (например auth=5,cards=35,balance=40,transfer=20),
+ * loadtest.rate-limit - оставить ограничение частоты запросов во встроенном приложении (по умолчанию false:
+ * все клиенты идут с одного IP и уперлись бы в лимиты входа и переводов, а не в само приложение),
+ * loadtest.target - адрес уже запущенного приложения, тогда встроенное не поднимается.
+ */
+public class LoadTestRunner {
+
+    enum Endpoint {
+        AUTH("POST /auth/authenticate"),
+        CARDS("GET /api/cards/userCards/me"),
+        BALANCE("GET /api/cards/balance/{id}"),
+        TRANSFER("POST /api/cards/transfer");
+
+        private final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int clients = Integer.getInteger("loadtest.clients", 64);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 30);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 5);
+    private final int users = Integer.getInteger("loadtest.users", 1000);
+    private final int cardsPerUser = Integer.getInteger("loadtest.cards-per-user", 2);
+    private final String password = System.getProperty("loadtest.password", "password");
+    private final boolean rateLimit = Boolean.getBoolean("loadtest.rate-limit");
+    private final Map<Endpoint, Integer> mix = parseMix(
+            System.getProperty("loadtest.mix", "auth=5,cards=35,balance=40,transfer=20"));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private String baseUrl;
+
+    public static void main(String[] args) throws Exception {
+        new LoadTestRunner().run();
+    }
+
+    void run() throws Exception {
+        String target = System.getProperty("loadtest.target");
+        ConfigurableApplicationContext context = null;
+        if (target == null || target.isBlank()) {
+            context = startApplication();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        } else {
+            baseUrl = target.endsWith("/") ? target.substring(0, target.length() - 1) : target;
+        }
+
+        try {
+            System.out.printf("Load test: %s, %d clients, %ds warmup + %ds measured, mix %s%n",
+                    baseUrl, clients, warmupSeconds, durationSeconds, mix);
+
+            List<Client> workers = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                workers.add(new Client("user" + (i % users)));
+            }
+
+            runPhase(workers, warmupSeconds);
+            workers.forEach(Client::reset);
+            long measuredNanos = runPhase(workers, durationSeconds);
+
+            report(workers, measuredNanos);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication() {
+        return new SpringApplicationBuilder(CardManagmentApplication.class)
+                .profiles("h2")
+                .run(
+                        "--server.port=0",
+                        "--management.server.port=0",
+                        "--logging.level.root=WARN",
+                        "--cards.seed.users=" + users,
+                        "--cards.seed.cards-per-user=" + cardsPerUser,
+                        "--cards.seed.password=" + password,
+                        "--cards.rate-limit.enabled=" + rateLimit);
+    }
+
+    /** Запустить всех клиентов на заданное время, вернуть фактическую длительность */
+    private long runPhase(List<Client> workers, int seconds) throws InterruptedException {
+        if (seconds <= 0) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long deadline = start + Duration.ofSeconds(seconds).toNanos();
+        CountDownLatch done = new CountDownLatch(workers.size());
+        for (Client worker : workers) {
+            Thread.ofPlatform().name("loadtest-" + worker.username).start(() -> {
+                try {
+                    worker.runUntil(deadline);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    private void report(List<Client> workers, long measuredNanos) {
+        double seconds = measuredNanos / 1_000_000_000.0;
+        System.out.printf("%n%-30s %10s %8s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms");
+
+        long totalRequests = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            List<LatencyRecorder> recorders = workers.stream().map(w -> w.recorders.get(endpoint)).toList();
+            LatencyRecorder.Summary summary = LatencyRecorder.merge(recorders);
+            if (summary.count() == 0) {
+                continue;
+            }
+            totalRequests += summary.count();
+            System.out.printf("%-30s %10d %8d %10.1f %10.2f %10.2f %10.2f%n",
+                    endpoint.label, summary.count(), summary.errors(), summary.count() / seconds,
+                    summary.percentileMillis(50), summary.percentileMillis(99), summary.percentileMillis(99.9));
+        }
+
+        Map<Integer, Long> statuses = new LinkedHashMap<>();
+        workers.forEach(w -> w.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum)));
+        System.out.printf("%-30s %10d %8s %10.1f%n", "total", totalRequests, "", totalRequests / seconds);
+        System.out.println("HTTP statuses: " + statuses);
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String value) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry: " + part);
+            }
+            weights.put(Endpoint.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("loadtest.mix must have a positive total weight");
+        }
+        return weights;
+    }
+
+    /** Клиент: один пользователь, свой токен и свои карты */
+    private class Client {
+
+        private final String username;
+        private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+        private final Map<Integer, Long> statuses = new LinkedHashMap<>();
+        private final int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        private String token;
+        private List<Long> cardIds = List.of();
+
+        Client(String username) {
+            this.username = username;
+            reset();
+        }
+
+        void reset() {
+            for (Endpoint endpoint : Endpoint.values()) {
+                recorders.put(endpoint, new LatencyRecorder());
+            }
+            statuses.clear();
+        }
+
+        void runUntil(long deadline) {
+            while (System.nanoTime() < deadline) {
+                Endpoint endpoint = token == null ? Endpoint.AUTH : nextEndpoint();
+                if (endpoint != Endpoint.AUTH && endpoint != Endpoint.CARDS && cardIds.size() < 2) {
+                    endpoint = Endpoint.CARDS;
+                }
+                call(endpoint);
+            }
+        }
+
+        private Endpoint nextEndpoint() {
+            int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+            for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            return Endpoint.CARDS;
+        }
+
+        private void call(Endpoint endpoint) {
+            HttpRequest request = buildRequest(endpoint);
+            long start = System.nanoTime();
+            int status;
+            String body = null;
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                status = response.statusCode();
+                body = response.body();
+            } catch (Exception e) {
+                status = -1;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            boolean success = status >= 200 && status < 300;
+            recorders.get(endpoint).record(elapsed, success);
+            statuses.merge(status, 1L, Long::sum);
+            if (success) {
+                onSuccess(endpoint, body);
+            }
+        }
+
+        private HttpRequest buildRequest(Endpoint endpoint) {
+            List<Long> cards = cardIds;
+            return switch (endpoint) {
+                case AUTH -> json(baseUrl + "/auth/authenticate",
+                        "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}");
+                case CARDS -> authorized(baseUrl + "/api/cards/userCards/me").GET().build();
+                case BALANCE -> authorized(baseUrl + "/api/cards/balance/" + randomCard(cards)).GET().build();
+                case TRANSFER -> {
+                    Long from = randomCard(cards);
+                    Long to = cards.get((cards.indexOf(from) + 1) % cards.size());
+                    yield json(baseUrl + "/api/cards/transfer",
+                            "{\"fromCardId\":" + from + ",\"toCardId\":" + to + ",\"amount\":1}");
+                }
+            };
+        }
+
+        private void onSuccess(Endpoint endpoint, String body) {
+            try {
+                if (endpoint == Endpoint.AUTH) {
+                    token = MAPPER.readTree(body).path("jwt").asText();
+                } else if (endpoint == Endpoint.CARDS) {
+                    List<Long> ids = new ArrayList<>();
+                    for (JsonNode card : MAPPER.readTree(body)) {
+                        ids.add(card.path("id").asLong());
+                    }
+                    cardIds = ids;
+                }
+            } catch (Exception e) {
+                // Тело ответа не разобрано - клиент повторит запрос на следующей итерации
+            }
+        }
+
+        private Long randomCard(List<Long> cards) {
+            return cards.get(ThreadLocalRandom.current().nextInt(cards.size()));
+        }
+
+        private HttpRequest.Builder authorized(String url) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30));
+            if (token != null) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            return builder;
+        }
+
+        private HttpRequest json(String url, String body) {
+            return authorized(url)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+}
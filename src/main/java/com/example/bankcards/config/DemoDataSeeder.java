@@ -0,0 +1,113 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CardNumberHasher;
+import com.example.bankcards.service.CardJournalService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Заполнение встроенной БД тестовыми данными (профиль h2).
+ * Пользователи user0..userN-1 с паролем cards.seed.password и M карт у каждого, плюс admin.
+ */
+@Component
+@Profile("h2")
+@RequiredArgsConstructor
+@Slf4j
+public class DemoDataSeeder implements ApplicationRunner {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final CardJournalService journalService;
+    private final PasswordEncoder passwordEncoder;
+    private final CardNumberHasher cardNumberHasher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${cards.seed.users:0}")
+    private int users;
+
+    @Value("${cards.seed.cards-per-user:2}")
+    private int cardsPerUser;
+
+    @Value("${cards.seed.password:password}")
+    private String password;
+
+    @Value("${cards.seed.initial-balance:100000}")
+    private BigDecimal initialBalance;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (users <= 0 || userRepository.count() > 0) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        // Один хэш на всех: BCrypt на каждого пользователя занял бы минуты
+        String passwordHash = passwordEncoder.encode(password);
+
+        transactionTemplate.executeWithoutResult(status -> userRepository.save(
+                User.builder().username("admin").password(passwordHash).roles(Set.of(Role.ROLE_ADMIN)).build()));
+
+        for (int from = 0; from < users; from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, users);
+            int chunkStart = from;
+            transactionTemplate.executeWithoutResult(status -> seedChunk(chunkStart, to, passwordHash));
+        }
+
+        log.info("Seeded {} users with {} cards each in {} ms",
+                users, cardsPerUser, System.currentTimeMillis() - start);
+    }
+
+    private void seedChunk(int from, int to, String passwordHash) {
+        List<User> chunkUsers = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            chunkUsers.add(User.builder()
+                    .username("user" + i)
+                    .password(passwordHash)
+                    .roles(Set.of(Role.ROLE_USER))
+                    .build());
+        }
+        userRepository.saveAll(chunkUsers);
+
+        List<Card> cards = new ArrayList<>(chunkUsers.size() * cardsPerUser);
+        for (int i = 0; i < chunkUsers.size(); i++) {
+            User user = chunkUsers.get(i);
+            for (int c = 0; c < cardsPerUser; c++) {
+                long sequence = (long) (from + i) * cardsPerUser + c;
+                String number = String.format("4000%012d", sequence);
+                cards.add(Card.builder()
+                        .number(number)
+                        .numberHash(cardNumberHasher.hash(number))
+                        .last4(CardNumberHasher.last4(number))
+                        .expirationDate(LocalDate.now().plusYears(3))
+                        .status(Status.ACTIVE)
+                        .balance(initialBalance)
+                        .owner(user.getUsername())
+                        .user(user)
+                        .build());
+            }
+        }
+        cardRepository.saveAll(cards);
+        cards.forEach(journalService::recordOpening);
+    }
+}
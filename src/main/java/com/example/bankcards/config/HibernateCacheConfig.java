@@ -0,0 +1,87 @@
+package com.example.bankcards.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэш второго уровня Hibernate на Caffeine (через JCache).
+ * Каждый регион ограничен по размеру и времени жизни записи. Выключенный регион
+ * создается с нулевым размером, и Hibernate всегда идет за сущностью в БД.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String CARD_REGION = "cards";
+    public static final String USER_REGION = "users";
+    public static final String USER_ROLES_REGION = "users.roles";
+    public static final String USER_NATURAL_ID_REGION = "users.natural-id";
+
+    @Value("${cards.cache.card.enabled:true}")
+    private boolean cardEnabled;
+
+    @Value("${cards.cache.card.max-size:10000}")
+    private long cardMaxSize;
+
+    @Value("${cards.cache.card.ttl-seconds:600}")
+    private long cardTtlSeconds;
+
+    @Value("${cards.cache.user.enabled:true}")
+    private boolean userEnabled;
+
+    @Value("${cards.cache.user.max-size:10000}")
+    private long userMaxSize;
+
+    @Value("${cards.cache.user.ttl-seconds:600}")
+    private long userTtlSeconds;
+
+    @Value("${cards.cache.statistics:false}")
+    private boolean statistics;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        // Свой менеджер на каждый контекст: менеджер по умолчанию общий для JVM, и контексты с разными БД
+        // (например, в тестах) читали бы из кэша чужие сущности с теми же id
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("hibernate-" + UUID.randomUUID()), HibernateCacheConfig.class.getClassLoader());
+        createRegion(cacheManager, CARD_REGION, cardEnabled, cardMaxSize, cardTtlSeconds);
+        createRegion(cacheManager, USER_REGION, userEnabled, userMaxSize, userTtlSeconds);
+        createRegion(cacheManager, USER_ROLES_REGION, userEnabled, userMaxSize, userTtlSeconds);
+        createRegion(cacheManager, USER_NATURAL_ID_REGION, userEnabled, userMaxSize, userTtlSeconds);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put("hibernate.cache.use_second_level_cache", true);
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            properties.put("hibernate.generate_statistics", statistics);
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String region, boolean enabled,
+                                     long maxSize, long ttlSeconds) {
+        if (cacheManager.getCache(region) != null) {
+            return;
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(enabled ? maxSize : 0));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        cacheManager.createCache(region, configuration);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.security.BoundedPasswordEncoder;
+import com.example.bankcards.security.BulkheadFilter;
+import com.example.bankcards.security.RateLimitFilter;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.service.TransferEngine;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Метрики приложения.
+ * TimedAspect включает @Timed на сервисах, binder-ы публикуют уже существующие счетчики
+ * (кэш claims JWT, движок переводов, пул хэширования паролей, перегородки) в Micrometer.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder jwtClaimsCacheMetrics(JwtUtil jwtUtil) {
+        return registry -> {
+            FunctionCounter.builder("jwt.claims.cache.requests", jwtUtil, JwtUtil::getClaimsCacheHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("jwt.claims.cache.requests", jwtUtil, JwtUtil::getClaimsCacheMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("jwt.claims.cache.size", jwtUtil, JwtUtil::getClaimsCacheSize)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder transferEngineMetrics(TransferEngine transferEngine) {
+        return registry -> {
+            FunctionCounter.builder("cards.transfer.transactions", transferEngine, TransferEngine::getTransactions)
+                    .register(registry);
+            FunctionCounter.builder("cards.transfer.lock.failures", transferEngine, TransferEngine::getLockFailures)
+                    .register(registry);
+            FunctionCounter.builder("cards.transfer.version.conflicts", transferEngine, TransferEngine::getVersionConflicts)
+                    .register(registry);
+            FunctionCounter.builder("cards.transfer.retries", transferEngine, TransferEngine::getRetries)
+                    .register(registry);
+            FunctionCounter.builder("cards.transfer.retries.exhausted", transferEngine, TransferEngine::getExhausted)
+                    .register(registry);
+            FunctionCounter.builder("cards.transfer.backoff", transferEngine, TransferEngine::getBackoffMillis)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(BoundedPasswordEncoder passwordEncoder) {
+        return registry -> {
+            Gauge.builder("cards.password.hashing.active", passwordEncoder, BoundedPasswordEncoder::getActiveCount)
+                    .register(registry);
+            Gauge.builder("cards.password.hashing.queued", passwordEncoder, BoundedPasswordEncoder::getQueueSize)
+                    .register(registry);
+            FunctionCounter.builder("cards.password.hashing.rejected", passwordEncoder, BoundedPasswordEncoder::getRejectedCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder bulkheadMetrics(BulkheadFilter bulkheadFilter) {
+        return registry -> {
+            for (BulkheadFilter.EndpointClass endpointClass : BulkheadFilter.EndpointClass.values()) {
+                String name = endpointClass.name();
+                Gauge.builder("cards.bulkhead.in.use", bulkheadFilter, f -> f.getStats().get(name).get("inUse"))
+                        .tag("endpoint", name)
+                        .register(registry);
+                FunctionCounter.builder("cards.bulkhead.rejected", bulkheadFilter, f -> f.getStats().get(name).get("rejected"))
+                        .tag("endpoint", name)
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimitFilter rateLimitFilter) {
+        return registry -> {
+            for (RateLimitFilter.Route route : RateLimitFilter.Route.values()) {
+                String name = route.name();
+                FunctionCounter.builder("cards.rate.limit.rejected", rateLimitFilter, f -> f.getStats().get(name).get("rejected"))
+                        .tag("route", name)
+                        .register(registry);
+            }
+            Gauge.builder("cards.rate.limit.buckets", rateLimitFilter, f -> f.getStats().get("buckets").get("size"))
+                    .register(registry);
+        };
+    }
+}
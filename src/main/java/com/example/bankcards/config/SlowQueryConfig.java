@@ -0,0 +1,36 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/** Оборачивает DataSource прокси, который передает время выполнения запросов в SlowQueryLogger */
+@Configuration
+@ConditionalOnProperty(name = "cards.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryConfig {
+
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourceWrapper(Environment environment,
+                                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        long thresholdMs = environment.getProperty("cards.slow-query.threshold-ms", Long.class, 200L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new SlowQueryLogger(thresholdMs, meterRegistry))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Журнал медленных SQL-запросов на уровне JDBC.
+ * Пишет только запросы дольше порога: время, текст, число bind-параметров, размер пакета
+ * и метод приложения, из которого выполнен запрос. Значения параметров не пишутся.
+ */
+@Slf4j
+public class SlowQueryLogger implements QueryExecutionListener {
+
+    private static final String APP_PACKAGE = "com.example.bankcards.";
+    private static final String CONFIG_PACKAGE = APP_PACKAGE + "config.";
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final long thresholdMs;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public SlowQueryLogger(long thresholdMs, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.thresholdMs = thresholdMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = execInfo.getElapsedTime();
+        if (elapsed < thresholdMs) {
+            return;
+        }
+
+        String caller = findCaller();
+        meterRegistry.ifAvailable(registry -> registry.counter("jdbc.slow.queries", "caller", caller).increment());
+
+        int bindParameters = 0;
+        for (QueryInfo queryInfo : queryInfoList) {
+            for (var parameters : queryInfo.getParametersList()) {
+                bindParameters += parameters.size();
+            }
+        }
+        String sql = queryInfoList.stream().map(QueryInfo::getQuery).distinct().collect(Collectors.joining("; "));
+
+        log.warn("Slow query: {} ms, caller={}, binds={}, batchSize={}, success={}, sql={}",
+                elapsed, caller, bindParameters, execInfo.isBatch() ? execInfo.getBatchSize() : 0,
+                execInfo.isSuccess(), sql);
+    }
+
+    /** Первый метод приложения в стеке, не считая прокси Spring и этого пакета */
+    private static String findCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APP_PACKAGE)
+                        && !frame.getClassName().startsWith(CONFIG_PACKAGE)
+                        && !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
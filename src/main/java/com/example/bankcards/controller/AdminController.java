@@ -0,0 +1,180 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.BalanceRebuildDTO;
+import com.example.bankcards.dto.BulkStatusResult;
+import com.example.bankcards.dto.CardStatsDTO;
+import com.example.bankcards.dto.LockRequestClaim;
+import com.example.bankcards.dto.LockRequestDecision;
+import com.example.bankcards.security.BulkheadFilter;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.RateLimitFilter;
+import com.example.bankcards.entity.JobCheckpoint;
+import com.example.bankcards.service.CacheStatisticsService;
+import com.example.bankcards.service.CardExpirationJob;
+import com.example.bankcards.service.CardJournalService;
+import com.example.bankcards.service.CardNumberBackfill;
+import com.example.bankcards.service.CardStatistics;
+import com.example.bankcards.service.LockRequestQueueService;
+import com.example.bankcards.service.TransferEngine;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    private final JwtUtil jwtUtil;
+    private final TransferEngine transferEngine;
+    private final CardJournalService journalService;
+    private final CacheStatisticsService cacheStatisticsService;
+    private final BulkheadFilter bulkheadFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final CardNumberBackfill cardNumberBackfill;
+    private final CardExpirationJob cardExpirationJob;
+    private final LockRequestQueueService lockRequestQueueService;
+    private final CardStatistics cardStatistics;
+
+    /** Сводная статистика по картам из счетчиков в памяти, без запросов к БД */
+    @GetMapping("/stats")
+    public ResponseEntity<CardStatsDTO> getStats() {
+        return ResponseEntity.ok(cardStatistics.getStats());
+    }
+
+    /** Пересчитать статистику по картам из БД */
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<CardStatsDTO> rebuildStats() {
+        cardStatistics.rebuild();
+        return ResponseEntity.ok(cardStatistics.getStats());
+    }
+
+    /** Статистика кэша проверенных JWT */
+    @GetMapping("/jwt-cache")
+    public ResponseEntity<Map<String, Long>> getJwtCacheStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", jwtUtil.getClaimsCacheHits());
+        stats.put("misses", jwtUtil.getClaimsCacheMisses());
+        stats.put("size", (long) jwtUtil.getClaimsCacheSize());
+        return ResponseEntity.ok(stats);
+    }
+
+    /** Статистика конкуренции за блокировки при переводах */
+    @GetMapping("/transfers/contention")
+    public ResponseEntity<Map<String, Long>> getTransferContention() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("transactions", transferEngine.getTransactions());
+        stats.put("lockFailures", transferEngine.getLockFailures());
+        stats.put("versionConflicts", transferEngine.getVersionConflicts());
+        stats.put("retries", transferEngine.getRetries());
+        stats.put("exhausted", transferEngine.getExhausted());
+        stats.put("backoffMillis", transferEngine.getBackoffMillis());
+        return ResponseEntity.ok(stats);
+    }
+
+    /** Восстановить баланс карты по снимку и журналу и сравнить с хранимым */
+    @GetMapping("/cards/{id}/balance/rebuild")
+    public ResponseEntity<BalanceRebuildDTO> rebuildBalance(@PathVariable Long id) {
+        return ResponseEntity.ok(journalService.rebuildBalance(id));
+    }
+
+    /** Попадания и промахи кэша второго уровня по регионам */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(cacheStatisticsService.getSecondLevelCacheStats());
+    }
+
+    /** Загрузка перегородок по классам эндпоинтов */
+    @GetMapping("/bulkheads")
+    public ResponseEntity<Map<String, Map<String, Long>>> getBulkheadStats() {
+        return ResponseEntity.ok(bulkheadFilter.getStats());
+    }
+
+    /** Пропущенные и отклоненные ограничителем частоты запросы по маршрутам */
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Map<String, Long>>> getRateLimitStats() {
+        return ResponseEntity.ok(rateLimitFilter.getStats());
+    }
+
+    /** Состояние заполнения хэшей номеров карт */
+    @GetMapping("/cards/number-backfill")
+    public ResponseEntity<Map<String, Object>> getNumberBackfillStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", cardNumberBackfill.isRunning());
+        status.put("processed", cardNumberBackfill.getProcessed());
+        return ResponseEntity.ok(status);
+    }
+
+    /** Запустить заполнение хэшей номеров карт, если оно не идет */
+    @PostMapping("/cards/number-backfill")
+    public ResponseEntity<Map<String, Object>> startNumberBackfill() {
+        boolean started = cardNumberBackfill.start();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("started", started);
+        status.put("processed", cardNumberBackfill.getProcessed());
+        return ResponseEntity.accepted().body(status);
+    }
+
+    /** Состояние перевода просроченных карт в EXPIRED: сегменты последнего запуска и их позиции */
+    @GetMapping("/cards/expiration")
+    public ResponseEntity<Map<String, Object>> getExpirationStatus() {
+        List<JobCheckpoint> segments = cardExpirationJob.getSegments();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", cardExpirationJob.isRunning());
+        status.put("expired", cardExpirationJob.getExpired());
+        status.put("runDate", segments.isEmpty() ? null : segments.get(0).getRunDate());
+        status.put("segments", segments.size());
+        status.put("completedSegments", segments.stream().filter(JobCheckpoint::isCompleted).count());
+        return ResponseEntity.ok(status);
+    }
+
+    /** Запустить перевод просроченных карт в EXPIRED, если он не идет */
+    @PostMapping("/cards/expiration")
+    public ResponseEntity<Map<String, Object>> startExpiration() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("started", cardExpirationJob.start());
+        status.put("expired", cardExpirationJob.getExpired());
+        return ResponseEntity.accepted().body(status);
+    }
+
+    /** Взять в работу до limit заявок на блокировку; заявки, которые забирают другие администраторы, пропускаются */
+    @PostMapping("/lock-requests/claim")
+    public ResponseEntity<LockRequestClaim> claimLockRequests(@RequestParam(defaultValue = "20") int limit,
+                                                              Authentication authentication) {
+        return ResponseEntity.ok(lockRequestQueueService.claim(authentication.getName(), limit));
+    }
+
+    /** Одобрить взятые заявки: карты блокируются */
+    @PostMapping("/lock-requests/approve")
+    public ResponseEntity<BulkStatusResult> approveLockRequests(@Valid @RequestBody LockRequestDecision decision,
+                                                                Authentication authentication) {
+        return ResponseEntity.ok(lockRequestQueueService.approve(decision.getIds(), authentication.getName()));
+    }
+
+    /** Отклонить взятые заявки: карты снова активны */
+    @PostMapping("/lock-requests/reject")
+    public ResponseEntity<BulkStatusResult> rejectLockRequests(@Valid @RequestBody LockRequestDecision decision,
+                                                               Authentication authentication) {
+        return ResponseEntity.ok(lockRequestQueueService.reject(decision.getIds(), authentication.getName()));
+    }
+
+    /** Глубина очереди заявок на блокировку и время взятия порции */
+    @GetMapping("/lock-requests/stats")
+    public ResponseEntity<Map<String, Object>> getLockRequestStats() {
+        return ResponseEntity.ok(lockRequestQueueService.getStats());
+    }
+}
@@ -3,9 +3,11 @@ package com.example.bankcards.controller;
 import com.example.bankcards.dto.AuthenticationRequest;
 import com.example.bankcards.dto.RegisterRequest;
 import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.PasswordHashingRejectedException;
 import com.example.bankcards.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -51,6 +53,8 @@ public class AuthController {
             );
         } catch (BadCredentialsException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Incorrect username or password");
+        } catch (PasswordHashingRejectedException e) {
+            return serviceBusy();
         }
 
         final UserDetails userDetails = userDetailsService
@@ -81,11 +85,20 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.CREATED).body("User registered successfully");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (PasswordHashingRejectedException e) {
+            return serviceBusy();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred during registration");
         }
     }
 
+    /** Пул хэширования паролей перегружен: быстрый отказ вместо ожидания */
+    private ResponseEntity<?> serviceBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Service is busy, please retry later");
+    }
+
     /** Вспомогательный класс для ответа */
     static class AuthenticationResponse {
         private final String jwt;
@@ -1,17 +1,38 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResult;
+import com.example.bankcards.dto.BulkStatusResult;
+import com.example.bankcards.dto.CardBalanceDTO;
 import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardIssueRequest;
+import com.example.bankcards.dto.CardIssueStatus;
+import com.example.bankcards.dto.CardLookupRequest;
+import com.example.bankcards.dto.CardStatusFilter;
+import com.example.bankcards.dto.CardTransactionDTO;
+import com.example.bankcards.dto.CursorPage;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.service.CardExportService;
+import com.example.bankcards.service.ExportColumn;
+import com.example.bankcards.service.ExportFormat;
+import com.example.bankcards.service.CardIssuanceService;
+import com.example.bankcards.service.CardJournalService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.IdempotencyKeyException;
+import com.example.bankcards.service.IdempotencyService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -21,6 +42,37 @@ import java.util.List;
 public class CardController {
 
     private final CardService cardService;
+    private final CardJournalService journalService;
+    private final CardExportService cardExportService;
+    private final IdempotencyService idempotencyService;
+    private final CardIssuanceService cardIssuanceService;
+
+    /** Все карты постранично, cursor - nextCursor предыдущей страницы (только для ADMIN) */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<CardDTO>> getCardsPage(@RequestParam(required = false) Long cursor,
+                                                           @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(cardService.getCardsPage(cursor, size));
+    }
+
+    /**
+     * Выгрузка всех карт курсором БД без загрузки таблицы в память (только для ADMIN).
+     * format - ndjson или csv, columns - список колонок через запятую; при Accept-Encoding: gzip ответ сжимается.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportCards(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) List<String> columns,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        List<ExportColumn<CardDTO>> selected = cardExportService.columns(columns);
+        boolean gzip = ExportFormat.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> cardExportService.exportCards(out, exportFormat, selected, gzip);
+        return ResponseEntity.ok()
+                .headers(exportFormat.responseHeaders("cards", gzip))
+                .body(body);
+    }
 
     /** Посмотреть все карты пользователя
      * (ADMIN) - просматривает у всех
@@ -50,6 +102,23 @@ public class CardController {
         return ResponseEntity.ok(createdCard);
     }
 
+    /** Массовый выпуск карт пользователю в фоне; ход выполнения - GET /api/cards/issue/{jobId} (только для ADMIN) */
+    @PostMapping("/issue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CardIssueStatus> issueCards(@Valid @RequestBody CardIssueRequest request) {
+        CardIssueStatus status = cardIssuanceService.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/cards/issue/" + status.getJobId()))
+                .body(status);
+    }
+
+    /** Состояние задачи массового выпуска: выпущено карт, скорость, ошибка (только для ADMIN) */
+    @GetMapping("/issue/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CardIssueStatus> getIssueStatus(@PathVariable String jobId) {
+        return ResponseEntity.ok(cardIssuanceService.getStatus(jobId));
+    }
+
     /** Получить карту по id*/
     @GetMapping("get/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -58,6 +127,14 @@ public class CardController {
         return ResponseEntity.ok(card);
     }
 
+    /** Найти карту по полному номеру (номер передается в теле, а не в URL, чтобы не попадать в логи) */
+    @PostMapping("/lookup")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CardDTO> findCardByNumber(@Valid @RequestBody CardLookupRequest request) {
+        CardDTO card = cardService.findCardByNumber(request.getNumber());
+        return ResponseEntity.ok(card);
+    }
+
     /** Удалить карту (только для ADMIN) */
     @DeleteMapping("delete/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -90,12 +167,59 @@ public class CardController {
         return ResponseEntity.ok(activatedCard);
     }
 
-    /** Перевод между своими картами */
+    /** Заблокировать все карты по фильтру: владелец, текущий статус, список id, срок действия (только для ADMIN) */
+    @PostMapping("/bulk/block")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkStatusResult> bulkBlock(@Valid @RequestBody CardStatusFilter filter) {
+        return ResponseEntity.ok(cardService.bulkUpdateStatus(filter, Status.BLOCKED));
+    }
+
+    /** Активировать все карты по фильтру; карты с истекшим сроком пропускаются (только для ADMIN) */
+    @PostMapping("/bulk/activate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkStatusResult> bulkActivate(@Valid @RequestBody CardStatusFilter filter) {
+        return ResponseEntity.ok(cardService.bulkUpdateStatus(filter, Status.ACTIVE));
+    }
+
+    /** Перевод между своими картами; с заголовком Idempotency-Key повтор возвращает сохраненный результат */
     @PostMapping("/transfer")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Void> transfer(@RequestBody TransferRequest request) {
-        cardService.transfer(request.getFromCardId(), request.getToCardId(), request.getAmount());
-        return ResponseEntity.ok().build();
+    public ResponseEntity<?> transfer(@RequestBody TransferRequest request,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                      Authentication authentication) {
+        if (idempotencyKey == null) {
+            cardService.transfer(request.getFromCardId(), request.getToCardId(), request.getAmount());
+            return ResponseEntity.ok().build();
+        }
+
+        try {
+            return idempotencyService.executeAtomically(authentication.getName(), idempotencyKey, "transfer", request,
+                    () -> {
+                        cardService.transfer(request.getFromCardId(), request.getToCardId(), request.getAmount());
+                        return null;
+                    }).toResponseEntity();
+        } catch (IdempotencyKeyException e) {
+            return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+        }
+    }
+
+    /** Пакетный перевод между своими картами, результат по каждому переводу; поддерживает Idempotency-Key */
+    @PostMapping("/transfers/batch")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> transferBatch(@Valid @RequestBody BatchTransferRequest request,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                           Authentication authentication) {
+        if (idempotencyKey == null) {
+            BatchTransferResult result = cardService.transferBatch(request.getTransfers());
+            return ResponseEntity.ok(result);
+        }
+
+        try {
+            return idempotencyService.executeClaimed(authentication.getName(), idempotencyKey, "transfers/batch", request,
+                    () -> cardService.transferBatch(request.getTransfers())).toResponseEntity();
+        } catch (IdempotencyKeyException e) {
+            return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+        }
     }
 
     /** Проверить баланс карты (только для USER) */
@@ -105,4 +229,22 @@ public class CardController {
         BigDecimal balance = cardService.checkBalance(cardId, authentication);
         return ResponseEntity.ok(balance);
     }
+
+    /** Балансы нескольких своих карт одним запросом: GET /api/cards/balances?ids=1,2,3 */
+    @GetMapping("/balances")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<CardBalanceDTO>> checkBalances(@RequestParam List<Long> ids, Authentication authentication) {
+        List<CardBalanceDTO> balances = cardService.checkBalances(ids, authentication);
+        return ResponseEntity.ok(balances);
+    }
+
+    /** История операций по карте с keyset-пагинацией (USER - только свои карты) */
+    @GetMapping("/{id}/transactions")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<CursorPage<CardTransactionDTO>> getTransactions(@PathVariable Long id,
+                                                                          @RequestParam(required = false) String cursor,
+                                                                          @RequestParam(defaultValue = "20") int size,
+                                                                          Authentication authentication) {
+        return ResponseEntity.ok(journalService.getTransactions(id, cursor, size, authentication));
+    }
 }
\ No newline at end of file
@@ -1,14 +1,20 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.CursorPage;
 import com.example.bankcards.dto.UserDTO;
 import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.service.ExportColumn;
+import com.example.bankcards.service.ExportFormat;
+import com.example.bankcards.service.UserExportService;
 import com.example.bankcards.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -19,6 +25,7 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final UserExportService userExportService;
 
     /** Получить имя своего пользователя */
     @GetMapping("/me")
@@ -49,6 +56,30 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    /** Выгрузка всех пользователей с ролями курсором БД: format - ndjson или csv, columns, gzip (только для ADMIN) */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) List<String> columns,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        List<ExportColumn<UserDTO>> selected = userExportService.columns(columns);
+        boolean gzip = ExportFormat.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> userExportService.exportUsers(out, exportFormat, selected, gzip);
+        return ResponseEntity.ok()
+                .headers(exportFormat.responseHeaders("users", gzip))
+                .body(body);
+    }
+
+    /** Получить пользователей постранично, cursor - nextCursor предыдущей страницы (только для ADMIN) */
+    @GetMapping("/allUsers/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<UserDTO>> getUsersPage(@RequestParam(required = false) Long cursor,
+                                                           @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(userService.getUsersPage(cursor, size));
+    }
+
     /** Изменить роль пользователя (только для ADMIN) */
     @PutMapping("/role/{id}")
     @PreAuthorize("hasRole('ADMIN')")
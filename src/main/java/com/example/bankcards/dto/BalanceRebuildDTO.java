@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceRebuildDTO {
+
+    private Long cardId;
+    private BigDecimal storedBalance;
+    private BigDecimal rebuiltBalance;
+    private Long snapshotSeq;
+    private long replayedEntries;
+}
@@ -0,0 +1,24 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResult {
+
+    private int succeeded;
+    private int failed;
+    private List<TransferItemResult> results;
+
+    public static BatchTransferResult of(List<TransferItemResult> results) {
+        int succeeded = (int) results.stream()
+                .filter(result -> TransferItemResult.OK.equals(result.getStatus()))
+                .count();
+        return new BatchTransferResult(succeeded, results.size() - succeeded, results);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Итог массовой смены статуса карт */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusResult {
+
+    private String status;
+
+    /** Карт, статус которых изменен */
+    private long updated;
+
+    /** Выполнено UPDATE (по одному на порцию) */
+    private int chunks;
+}
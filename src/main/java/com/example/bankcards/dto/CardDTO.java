@@ -1,6 +1,7 @@
 package com.example.bankcards.dto;
 
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.Status;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -33,11 +34,18 @@ public class CardDTO {
 
     private BigDecimal balance;
 
+    /** Конструктор для JPQL-проекций: номер маскируется один раз при чтении из БД */
+    public CardDTO(Long id, String number, String ownerUsername, Long userId,
+                   LocalDate expirationDate, Status status, BigDecimal balance) {
+        this(id, maskCardNumber(number), ownerUsername, userId, expirationDate,
+                status != null ? status.name() : null, balance);
+    }
+
     public static CardDTO fromEntity(Card card) {
         if (card == null) return null;
         CardDTO dto = new CardDTO();
         dto.id = card.getId();
-        dto.number = maskCardNumber(card.getNumber());
+        dto.number = maskCardNumber(card.getLast4() != null ? card.getLast4() : card.getNumber());
         dto.ownerUsername = card.getOwner();
         dto.userId = card.getUser().getId();
         dto.expirationDate = card.getExpirationDate();
@@ -46,7 +54,7 @@ public class CardDTO {
         return dto;
     }
 
-    private static String maskCardNumber(String number) {
+    public static String maskCardNumber(String number) {
         if (number == null || number.length() < 4) return "****";
         return "**** **** **** " + number.substring(number.length() - 4);
     }
@@ -0,0 +1,27 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class CardIssueRequest {
+
+    @NotNull(message = "UserId is required")
+    private Long userId;
+
+    @NotNull(message = "Count is required")
+    @Min(value = 1, message = "Count must be positive")
+    private Integer count;
+
+    @PositiveOrZero(message = "Balance must not be negative")
+    private BigDecimal balance;
+
+    /** BIN выпуска; без него используется cards.issuance.bin */
+    @Pattern(regexp = "\\d{6}", message = "BIN must be 6 digits")
+    private String bin;
+}
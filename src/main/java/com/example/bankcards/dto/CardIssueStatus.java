@@ -0,0 +1,48 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/** Состояние задачи массового выпуска карт */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardIssueStatus {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String jobId;
+
+    private Long userId;
+
+    private String bin;
+
+    private State state;
+
+    private long requested;
+
+    private long issued;
+
+    private Long firstCardId;
+
+    private Long lastCardId;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private long elapsedMs;
+
+    /** Скорость выпуска, карт в секунду */
+    private double cardsPerSecond;
+
+    private String error;
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+
+/** Сводная статистика по картам из счетчиков в памяти */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardStatsDTO {
+
+    private long totalCards;
+
+    private Map<String, Long> cardsByStatus;
+
+    private BigDecimal totalBalance;
+
+    private long usersWithCards;
+
+    private double averageCardsPerUser;
+
+    /** Число пользователей с 1, 2, ... 9 и "10+" картами */
+    private Map<String, Long> usersByCardCount;
+
+    private YearMonth nextMonth;
+
+    /** Карт со сроком действия, истекающим в следующем календарном месяце */
+    private long expiringNextMonth;
+
+    /** Время последнего пересчета из БД */
+    private LocalDateTime rebuiltAt;
+
+    /** На сколько карт разошлись счетчики с БД при последнем пересчете */
+    private long lastRebuildCorrection;
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.enums.Status;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/** Отбор карт для массовой смены статуса; условия объединяются через AND, нужно хотя бы одно */
+@Data
+public class CardStatusFilter {
+
+    /** Владелец карт */
+    private Long userId;
+
+    /** Текущий статус, например LOCK_REQUEST */
+    private Status status;
+
+    @Size(max = 10000, message = "No more than 10000 card ids")
+    private List<Long> ids;
+
+    /** Срок действия не раньше этой даты */
+    private LocalDate expiresFrom;
+
+    /** Срок действия не позже этой даты */
+    private LocalDate expiresTo;
+
+    public boolean isEmpty() {
+        return userId == null && status == null && (ids == null || ids.isEmpty())
+                && expiresFrom == null && expiresTo == null;
+    }
+}
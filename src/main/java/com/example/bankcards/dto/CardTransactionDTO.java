@@ -0,0 +1,36 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardTransaction;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardTransactionDTO {
+
+    private Long id;
+    private Long cardId;
+    private Long counterpartyCardId;
+    private String type;
+    private BigDecimal amount;
+    private BigDecimal balanceAfter;
+    private LocalDateTime createdAt;
+
+    public static CardTransactionDTO fromEntity(CardTransaction transaction) {
+        if (transaction == null) return null;
+        return new CardTransactionDTO(
+                transaction.getId(),
+                transaction.getCardId(),
+                transaction.getCounterpartyCardId(),
+                transaction.getType().name(),
+                transaction.getAmount(),
+                transaction.getBalanceAfter(),
+                transaction.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/** Ответ на запрос с Idempotency-Key: новый или сохраненный ранее (replayed) */
+@Data
+@AllArgsConstructor
+public class IdempotentResponse {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private int status;
+    private String body;
+    private boolean replayed;
+
+    public ResponseEntity<?> toResponseEntity() {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+        if (replayed) {
+            builder.header(REPLAYED_HEADER, "true");
+        }
+        if (body == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
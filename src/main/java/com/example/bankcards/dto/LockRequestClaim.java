@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** Заявки на блокировку, закрепленные за администратором до claimedUntil */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LockRequestClaim {
+
+    private String claimedBy;
+
+    private LocalDateTime claimedUntil;
+
+    private List<CardDTO> cards;
+}
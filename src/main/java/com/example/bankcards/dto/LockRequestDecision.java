@@ -0,0 +1,16 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/** Id закрепленных заявок, по которым принято решение */
+@Data
+public class LockRequestDecision {
+
+    @NotEmpty(message = "Card ids are required")
+    @Size(max = 1000, message = "No more than 1000 card ids")
+    private List<Long> ids;
+}
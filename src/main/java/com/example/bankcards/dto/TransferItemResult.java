@@ -0,0 +1,32 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Результат одного перевода из пакета: OK, REJECTED (бизнес-проверка) или FAILED (ошибка транзакции) */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferItemResult {
+
+    public static final String OK = "OK";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    private int index;
+    private String status;
+    private String message;
+
+    public static TransferItemResult ok(int index) {
+        return new TransferItemResult(index, OK, null);
+    }
+
+    public static TransferItemResult rejected(int index, String message) {
+        return new TransferItemResult(index, REJECTED, message);
+    }
+
+    public static TransferItemResult failed(int index, String message) {
+        return new TransferItemResult(index, FAILED, message);
+    }
+}
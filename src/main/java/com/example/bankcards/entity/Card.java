@@ -1,14 +1,28 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.config.HibernateCacheConfig;
 import com.example.bankcards.entity.enums.Status;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cards")
+@Table(name = "cards", indexes = {
+        @Index(name = "idx_cards_number_hash", columnList = "number_hash", unique = true),
+        @Index(name = "idx_cards_expiration", columnList = "expiration_date, status"),
+        @Index(name = "idx_cards_status_claim", columnList = "status, claimed_until"),
+        @Index(name = "idx_cards_journal_pending", columnList = "journal_pending")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.CARD_REGION)
+// UPDATE пишет только измененные колонки: перевод меняет balance, заполнение хэшей - number_hash/last4,
+// и параллельные изменения разных колонок одной карты не затирают друг друга
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,12 +30,21 @@ import java.time.LocalDate;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_seq")
+    @SequenceGenerator(name = "card_seq", sequenceName = "card_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "number", nullable = false, unique = true, length = 16)
     private String number;
 
+    /** HMAC-SHA256 номера (CardNumberHasher), поиск карты по номеру идет только по этому индексу */
+    @Column(name = "number_hash", length = 64)
+    private String numberHash;
+
+    /** Последние 4 цифры номера для маскированного вывода */
+    @Column(name = "last4", length = 4)
+    private String last4;
+
     @Column(name = "expiration_date", nullable = false)
     private LocalDate expirationDate;
 
@@ -35,6 +58,27 @@ public class Card {
     @Column(name = "owner", nullable = false)
     private String owner;
 
+    /** Администратор, взявший заявку на блокировку в работу (очередь LOCK_REQUEST) */
+    @Column(name = "claimed_by", length = 100)
+    private String claimedBy;
+
+    /** До какого момента заявка закреплена за claimedBy; после этого ее может взять другой */
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    /** Номер последней записи журнала карты: записи нумеруются подряд в транзакции, изменяющей карту */
+    @Column(name = "journal_seq", nullable = false)
+    private long journalSeq;
+
+    /** Сколько записей журнала добавлено после последнего снимка баланса */
+    @Column(name = "journal_pending", nullable = false)
+    private long journalPending;
+
+    /** Версия строки: параллельное изменение той же карты завершается конфликтом, а не затирается */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // Связь с пользователем (владелец карты)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
@@ -0,0 +1,26 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Счетчик номеров карт выпуска по BIN. Выпуск резервирует сразу диапазон порядковых номеров
+ * [nextSerial, nextSerial + count), поэтому сгенерированные номера уникальны без проверки каждого в БД.
+ */
+@Entity
+@Table(name = "card_number_ranges")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardNumberRange {
+
+    /** Первые 6 цифр номера */
+    @Id
+    @Column(name = "bin", length = 6)
+    private String bin;
+
+    /** Первый свободный порядковый номер (9 цифр после BIN) */
+    @Column(name = "next_serial", nullable = false)
+    private Long nextSerial;
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.enums.TransactionType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** Запись журнала операций по карте. Записи только добавляются и никогда не изменяются */
+@Entity
+@Immutable
+@Table(name = "card_transactions", indexes = {
+        @Index(name = "idx_card_transactions_card_created", columnList = "card_id, created_at, id"),
+        @Index(name = "idx_card_transactions_card_seq", columnList = "card_id, seq")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_transaction_seq")
+    @SequenceGenerator(name = "card_transaction_seq", sequenceName = "card_transaction_seq", allocationSize = 50)
+    private Long id;
+
+    // Без внешнего ключа: журнал сохраняется и после удаления карты
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    /** Номер записи в журнале карты: OPENING - 0, дальше по порядку фиксации. У записей до нумерации - null */
+    @Column(name = "seq")
+    private Long seq;
+
+    @Column(name = "counterparty_card_id")
+    private Long counterpartyCardId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 20)
+    private TransactionType type;
+
+    // Со знаком: списание отрицательное, зачисление положительное
+    @Column(name = "amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "balance_after", nullable = false, precision = 19, scale = 2)
+    private BigDecimal balanceAfter;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
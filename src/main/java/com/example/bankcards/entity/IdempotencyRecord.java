@@ -0,0 +1,50 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сохраненный результат запроса с Idempotency-Key.
+ * Ключ уникален в пределах пользователя: id = username + ":" + ключ.
+ * responseStatus = 0 - запрос еще выполняется. Через save запись только вставляется,
+ * поэтому isNew всегда true - INSERT без предварительного SELECT; результат дописывается запросом UPDATE.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "id", length = 200)
+    private String id;
+
+    /** SHA-256 тела запроса: повтор ключа с другим запросом отклоняется */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "response_status", nullable = false)
+    private int responseStatus;
+
+    @Lob
+    @Column(name = "response_body")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Прогресс фоновой задачи по одному диапазону id: (rangeStart, rangeEnd].
+ * position - последний обработанный id, задача после рестарта продолжает с него.
+ * runDate - дата запуска, к которой относятся диапазоны; у нового запуска диапазоны строятся заново.
+ */
+@Entity
+@Table(name = "job_checkpoints", indexes = {
+        @Index(name = "idx_job_checkpoints_job", columnList = "job")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobCheckpoint {
+
+    /** job + ":" + начало диапазона */
+    @Id
+    @Column(name = "id", length = 100)
+    private String id;
+
+    @Column(name = "job", nullable = false, length = 50)
+    private String job;
+
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Column(name = "range_start", nullable = false)
+    private Long rangeStart;
+
+    @Column(name = "range_end", nullable = false)
+    private Long rangeEnd;
+
+    @Column(name = "position", nullable = false)
+    private Long position;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public boolean isCompleted() {
+        return position >= rangeEnd;
+    }
+}
@@ -1,12 +1,138 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.CardBalanceDTO;
+import com.example.bankcards.dto.CardDTO;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.Status;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card, Long> {
+public interface CardRepository extends JpaRepository<Card, Long>, CardRepositoryCustom {
+
+    /**
+     * Проекция в CardDTO: читаются только нужные колонки, сущности и прокси User не создаются.
+     * Для маски достаточно last4; номер читается только у карт, еще не заполненных CardNumberBackfill.
+     */
+    String CARD_DTO_PROJECTION = "select new com.example.bankcards.dto.CardDTO(" +
+            "c.id, coalesce(c.last4, c.number), c.owner, c.user.id, c.expirationDate, c.status, c.balance) from Card c ";
+
     List<Card> findAllByUserId(Long userId);
+
+    /** Поиск карты по ключевому хэшу номера (уникальный индекс idx_cards_number_hash) */
+    @Query(CARD_DTO_PROJECTION + "where c.numberHash = :numberHash")
+    Optional<CardDTO> findDtoByNumberHash(@Param("numberHash") String numberHash);
+
+    /** Следующая порция карт без хэша номера, по возрастанию id */
+    @Query("select c from Card c where c.id > :afterId and c.numberHash is null order by c.id")
+    List<Card> findWithoutNumberHashAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select coalesce(max(c.id), 0) from Card c")
+    long findMaxId();
+
+    /** Id карт диапазона (afterId, toId] с истекшим сроком, еще не переведенных в EXPIRED (индекс idx_cards_expiration) */
+    @Query("select c.id from Card c where c.expirationDate < :today " +
+            "and c.status <> com.example.bankcards.entity.enums.Status.EXPIRED " +
+            "and c.id > :afterId and c.id <= :toId order by c.id")
+    List<Long> findExpiredIdsBetween(@Param("afterId") Long afterId, @Param("toId") Long toId,
+                                     @Param("today") LocalDate today, Pageable pageable);
+
+    @Query(CARD_DTO_PROJECTION + "where c.id = :id")
+    Optional<CardDTO> findDtoById(@Param("id") Long id);
+
+    @Query(CARD_DTO_PROJECTION + "where c.user.id = :userId order by c.id")
+    List<CardDTO> findDtosByUserId(@Param("userId") Long userId);
+
+    @Query(CARD_DTO_PROJECTION + "order by c.id")
+    List<CardDTO> findAllDtos();
+
+    /** Keyset-страница карт в виде DTO */
+    @Query(CARD_DTO_PROJECTION + "where c.id > :afterId order by c.id")
+    List<CardDTO> findDtosAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /** Балансы карт пользователя одним запросом; чужие и несуществующие карты в результат не попадают */
+    @Query("select new com.example.bankcards.dto.CardBalanceDTO(c.id, c.balance) from Card c " +
+            "where c.id in :ids and c.user.username = :username order by c.id")
+    List<CardBalanceDTO> findBalancesByIdInAndUsername(@Param("ids") Collection<Long> ids,
+                                                       @Param("username") String username);
+
+    /** Все карты в виде DTO курсором БД: строки читаются порциями по fetchSize, сущности не создаются */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(CARD_DTO_PROJECTION + "order by c.id")
+    Stream<CardDTO> streamAllDtos();
+
+    long countByStatus(Status status);
+
+    /** Строки (status, count, sum(balance)) для пересчета статистики */
+    @Query("select c.status, count(c), coalesce(sum(c.balance), 0) from Card c group by c.status")
+    List<Object[]> sumBalancesByStatus();
+
+    /** Строки (userId, count) курсором БД: пользователей может быть намного больше, чем статусов и месяцев */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.user.id, count(c) from Card c group by c.user.id")
+    Stream<Object[]> streamCardCountsByUser();
+
+    /** Строки (year, month, count) по месяцу окончания срока действия */
+    @Query("select extract(year from c.expirationDate), extract(month from c.expirationDate), count(c) from Card c " +
+            "group by extract(year from c.expirationDate), extract(month from c.expirationDate)")
+    List<Object[]> countByExpirationMonth();
+
+    /** Строки (status, count) по указанным картам: прежние статусы перед массовым UPDATE */
+    @Query("select c.status, count(c) from Card c where c.id in :ids group by c.status")
+    List<Object[]> countByStatusForIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Следующие заявки на блокировку без действующего закрепления, по возрастанию id (индекс idx_cards_status_claim).
+     * SKIP LOCKED: строки, которые в этот момент забирает другой администратор, пропускаются, а не ожидаются.
+     * Таймаут -2 - значение SKIP_LOCKED в Hibernate (константа LockOptions.SKIP_LOCKED устарела).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select c from Card c where c.status = com.example.bankcards.entity.enums.Status.LOCK_REQUEST " +
+            "and (c.claimedUntil is null or c.claimedUntil < :now) order by c.id")
+    List<Card> findLockRequestsToClaim(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("select count(c) from Card c where c.status = com.example.bankcards.entity.enums.Status.LOCK_REQUEST " +
+            "and c.claimedUntil >= :now")
+    long countClaimedLockRequests(@Param("now") LocalDateTime now);
+
+    /** Загрузить карту с блокировкой строки (SELECT ... FOR UPDATE) */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    /** Загрузить карты без блокировки; параллельные изменения обнаруживаются по версии при фиксации */
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** Загрузить карты с блокировкой строк; строки захватываются в порядке первичного ключа */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    /** Карты, у которых после последнего снимка накопилось не меньше threshold записей (индекс idx_cards_journal_pending) */
+    @Query("select c.id from Card c where c.journalPending >= :threshold")
+    List<Long> findIdsDueForSnapshot(@Param("threshold") long threshold, Pageable pageable);
+
+    /** Карты без записи открытия журнала (созданные до его появления) после afterId, по возрастанию id */
+    @Query("select c.id from Card c where c.id > :afterId and not exists " +
+            "(select t.id from CardTransaction t where t.cardId = c.id and t.seq = 0) order by c.id")
+    List<Long> findIdsWithoutJournalAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
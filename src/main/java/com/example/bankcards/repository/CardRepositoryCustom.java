@@ -0,0 +1,33 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardStatusFilter;
+import com.example.bankcards.entity.enums.Status;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface CardRepositoryCustom {
+
+    /**
+     * Перевести карты с истекшим сроком в EXPIRED одним UPDATE с увеличением версии.
+     * Из кэша второго уровня после фиксации удаляются только эти карты, а не весь регион.
+     */
+    int expireCards(Collection<Long> ids, LocalDate today);
+
+    /**
+     * Следующая порция id карт по фильтру, статус которых можно сменить на target, по возрастанию id.
+     * Для ACTIVE карты с истекшим сроком не отбираются.
+     */
+    List<Long> findIdsForStatusChange(CardStatusFilter filter, Status target, Long afterId, LocalDate today, int limit);
+
+    /** Сменить статус карт одним UPDATE с увеличением версии; кэш очищается только для этих карт */
+    int updateStatus(Collection<Long> ids, Status target, LocalDate today);
+
+    /**
+     * Решение по заявкам на блокировку: перевести в target только заявки, закрепленные за worker,
+     * и снять закрепление. Заявки, перехваченные другим после истечения закрепления, не меняются.
+     * Для ACTIVE заявки на карты с истекшим сроком не меняются - их переведет в EXPIRED CardExpirationJob.
+     */
+    int resolveLockRequests(Collection<Long> ids, String worker, Status target, LocalDate today);
+}
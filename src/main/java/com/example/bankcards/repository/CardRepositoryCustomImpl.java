@@ -0,0 +1,156 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardStatusFilter;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.Status;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public class CardRepositoryCustomImpl implements CardRepositoryCustom {
+
+    private static final String EXPIRE_SQL = "UPDATE cards SET status = :expired, version = version + 1 " +
+            "WHERE id IN (:ids) AND expiration_date < :today AND status <> :expired";
+
+    private static final String UPDATE_STATUS_SQL = "UPDATE cards SET status = :target, version = version + 1 " +
+            "WHERE id IN (:ids) AND status <> :target";
+
+    private static final String RESOLVE_LOCK_REQUESTS_SQL = "UPDATE cards SET status = :target, " +
+            "claimed_by = NULL, claimed_until = NULL, version = version + 1 " +
+            "WHERE id IN (:ids) AND status = :lockRequest AND claimed_by = :worker";
+
+    /** Активировать можно только карту с действующим сроком */
+    private static final String ACTIVATE_CONDITION = " AND status <> :expired AND expiration_date >= :today";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int expireCards(Collection<Long> ids, LocalDate today) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int updated = nativeUpdate(EXPIRE_SQL)
+                .setParameter("expired", Status.EXPIRED.name())
+                .setParameter("ids", ids)
+                .setParameter("today", today)
+                .executeUpdate();
+        evictAfterCommit(List.copyOf(ids));
+        return updated;
+    }
+
+    @Override
+    public List<Long> findIdsForStatusChange(CardStatusFilter filter, Status target, Long afterId,
+                                             LocalDate today, int limit) {
+        StringBuilder jpql = new StringBuilder("select c.id from Card c where c.id > :afterId and c.status <> :target");
+        if (filter.getUserId() != null) {
+            jpql.append(" and c.user.id = :userId");
+        }
+        if (filter.getStatus() != null) {
+            jpql.append(" and c.status = :status");
+        }
+        if (filter.getIds() != null && !filter.getIds().isEmpty()) {
+            jpql.append(" and c.id in :ids");
+        }
+        if (filter.getExpiresFrom() != null) {
+            jpql.append(" and c.expirationDate >= :expiresFrom");
+        }
+        if (filter.getExpiresTo() != null) {
+            jpql.append(" and c.expirationDate <= :expiresTo");
+        }
+        if (target == Status.ACTIVE) {
+            jpql.append(" and c.status <> :expired and c.expirationDate >= :today");
+        }
+        jpql.append(" order by c.id");
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class)
+                .setParameter("afterId", afterId)
+                .setParameter("target", target)
+                .setMaxResults(limit);
+        if (filter.getUserId() != null) {
+            query.setParameter("userId", filter.getUserId());
+        }
+        if (filter.getStatus() != null) {
+            query.setParameter("status", filter.getStatus());
+        }
+        if (filter.getIds() != null && !filter.getIds().isEmpty()) {
+            query.setParameter("ids", filter.getIds());
+        }
+        if (filter.getExpiresFrom() != null) {
+            query.setParameter("expiresFrom", filter.getExpiresFrom());
+        }
+        if (filter.getExpiresTo() != null) {
+            query.setParameter("expiresTo", filter.getExpiresTo());
+        }
+        if (target == Status.ACTIVE) {
+            query.setParameter("expired", Status.EXPIRED);
+            query.setParameter("today", today);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public int updateStatus(Collection<Long> ids, Status target, LocalDate today) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        boolean activate = target == Status.ACTIVE;
+        NativeQuery<?> query = nativeUpdate(activate ? UPDATE_STATUS_SQL + ACTIVATE_CONDITION : UPDATE_STATUS_SQL)
+                .setParameter("target", target.name())
+                .setParameter("ids", ids);
+        if (activate) {
+            query.setParameter("expired", Status.EXPIRED.name());
+            query.setParameter("today", today);
+        }
+        int updated = query.executeUpdate();
+        evictAfterCommit(List.copyOf(ids));
+        return updated;
+    }
+
+    @Override
+    public int resolveLockRequests(Collection<Long> ids, String worker, Status target, LocalDate today) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        boolean activate = target == Status.ACTIVE;
+        NativeQuery<?> query = nativeUpdate(activate ? RESOLVE_LOCK_REQUESTS_SQL + ACTIVATE_CONDITION : RESOLVE_LOCK_REQUESTS_SQL)
+                .setParameter("target", target.name())
+                .setParameter("ids", ids)
+                .setParameter("lockRequest", Status.LOCK_REQUEST.name())
+                .setParameter("worker", worker);
+        if (activate) {
+            query.setParameter("expired", Status.EXPIRED.name());
+            query.setParameter("today", today);
+        }
+        int updated = query.executeUpdate();
+        evictAfterCommit(List.copyOf(ids));
+        return updated;
+    }
+
+    /** Native UPDATE без очистки кэша второго уровня: без пространства запроса Hibernate очищает все регионы */
+    private NativeQuery<?> nativeUpdate(String sql) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("");
+    }
+
+    private void evictAfterCommit(List<Long> ids) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Cache cache = entityManager.getEntityManagerFactory().getCache();
+                for (Long id : ids) {
+                    cache.evict(Card.class, id);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardTransaction;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CardTransactionRepository extends JpaRepository<CardTransaction, Long> {
+
+    /** Первая страница истории карты, новые записи первыми */
+    @Query("select t from CardTransaction t where t.cardId = :cardId order by t.createdAt desc, t.id desc")
+    List<CardTransaction> findLatest(@Param("cardId") Long cardId, Pageable pageable);
+
+    /** Следующая страница истории после курсора (createdAt, id) */
+    @Query("select t from CardTransaction t where t.cardId = :cardId " +
+            "and (t.createdAt < :createdAt or (t.createdAt = :createdAt and t.id < :id)) " +
+            "order by t.createdAt desc, t.id desc")
+    List<CardTransaction> findBefore(@Param("cardId") Long cardId,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+
+    /** Сумма движений по карте с номерами записей больше afterSeq (индекс idx_card_transactions_card_seq) */
+    @Query("select coalesce(sum(t.amount), 0) from CardTransaction t where t.cardId = :cardId and t.seq > :afterSeq")
+    BigDecimal sumAmountsAfter(@Param("cardId") Long cardId, @Param("afterSeq") long afterSeq);
+
+    @Query("select count(t) from CardTransaction t where t.cardId = :cardId and t.seq > :afterSeq")
+    long countAfter(@Param("cardId") Long cardId, @Param("afterSeq") long afterSeq);
+
+    /** Есть ли у карты запись открытия журнала (seq = 0) */
+    boolean existsByCardIdAndSeq(Long cardId, Long seq);
+}
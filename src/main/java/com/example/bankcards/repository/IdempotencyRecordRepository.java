@@ -0,0 +1,38 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Query("select r from IdempotencyRecord r where r.id = :id and r.expiresAt > :now")
+    Optional<IdempotencyRecord> findActive(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /** Записать результат запроса, ключ которого был занят заранее */
+    @Modifying
+    @Query("update IdempotencyRecord r set r.responseStatus = :status, r.responseBody = :body where r.id = :id")
+    int complete(@Param("id") String id, @Param("status") int status, @Param("body") String body);
+
+    /** Освободить ключ; deleteById не подходит - для Persistable с isNew() = true он ничего не удаляет */
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id")
+    int release(@Param("id") String id);
+
+    /** Удалить запись ключа, если ее TTL истек: ключ можно занять снова, не дожидаясь purgeExpired */
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.expiresAt <= :now")
+    int releaseExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /** Удалить просроченные записи */
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
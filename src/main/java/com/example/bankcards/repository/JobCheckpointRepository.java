@@ -0,0 +1,44 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.JobCheckpoint;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    List<JobCheckpoint> findByJobOrderByRangeStart(String job);
+
+    /** Сегменты задачи с блокировкой строк: запуск дня готовит только один экземпляр */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("select c from JobCheckpoint c where c.job = :job order by c.rangeStart")
+    List<JobCheckpoint> findByJobForUpdate(@Param("job") String job);
+
+    /** Сегмент с блокировкой строки: порцию сегмента обрабатывает только один экземпляр */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("select c from JobCheckpoint c where c.id = :id")
+    Optional<JobCheckpoint> findByIdForUpdate(@Param("id") String id);
+
+    /** Сдвинуть позицию диапазона; вызывается в транзакции обработанной порции */
+    @Modifying
+    @Query("update JobCheckpoint c set c.position = :position, c.updatedAt = :now where c.id = :id")
+    int advance(@Param("id") String id, @Param("position") Long position, @Param("now") LocalDateTime now);
+
+    /** Удалить сегменты задачи; загруженные ранее в контекст сегменты отсоединяются, чтобы новые с теми же id вставились */
+    @Modifying(clearAutomatically = true)
+    @Query("delete from JobCheckpoint c where c.job = :job")
+    int deleteByJob(@Param("job") String job);
+}
@@ -1,13 +1,33 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    /** Версия токенов пользователя без загрузки сущности и ролей */
+    @Query("select u.tokenVersion from User u where u.username = :username")
+    Optional<Integer> findTokenVersionByUsername(@Param("username") String username);
+
+    /** Keyset-страница пользователей с id больше курсора */
+    List<User> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    /** Пользователи с ролями курсором БД: строка (id, username, role) на каждую роль, строки пользователя идут подряд */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id, u.username, r from User u left join u.roles r order by u.id")
+    Stream<Object[]> streamAllWithRoles();
 }
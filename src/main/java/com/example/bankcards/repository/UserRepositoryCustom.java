@@ -0,0 +1,11 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    /** Найти пользователя по username через кэш natural-id, без SQL при попадании в кэш */
+    Optional<User> findByNaturalUsername(String username);
+}
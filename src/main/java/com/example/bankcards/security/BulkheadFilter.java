@@ -0,0 +1,174 @@
+package com.example.bankcards.security;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничивает число одновременно выполняемых запросов для каждого класса эндпоинтов.
+ * С виртуальными потоками Tomcat больше не ограничивает параллелизм, и без перегородок
+ * всплеск одного типа запросов занял бы весь пул соединений с БД. Запрос, не получивший
+ * разрешение за max-wait-ms, получает 503. Асинхронный запрос (StreamingResponseBody выгрузок)
+ * держит разрешение до завершения ответа, а не до выхода из первой обработки.
+ */
+@Component
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    public enum EndpointClass {
+        AUTH,
+        CARD_READS,
+        TRANSFERS,
+        // Администрирование и редкие изменения карт (создание, блокировка, удаление)
+        ADMIN
+    }
+
+    private final Map<EndpointClass, Semaphore> permits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Integer> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, LongAdder> rejected = new EnumMap<>(EndpointClass.class);
+    private final long maxWaitMillis;
+
+    public BulkheadFilter(@Value("${cards.bulkhead.auth.permits:50}") int authPermits,
+                          @Value("${cards.bulkhead.card-reads.permits:100}") int cardReadPermits,
+                          @Value("${cards.bulkhead.transfers.permits:30}") int transferPermits,
+                          @Value("${cards.bulkhead.admin.permits:10}") int adminPermits,
+                          @Value("${cards.bulkhead.max-wait-ms:100}") long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+        register(EndpointClass.AUTH, authPermits);
+        register(EndpointClass.CARD_READS, cardReadPermits);
+        register(EndpointClass.TRANSFERS, transferPermits);
+        register(EndpointClass.ADMIN, adminPermits);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+        if (endpointClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Semaphore semaphore = permits.get(endpointClass);
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            rejected.get(endpointClass).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Потоковый ответ (выгрузки) продолжает работать после выхода из фильтра
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(semaphore));
+            } else {
+                semaphore.release();
+            }
+        }
+    }
+
+    /** Свободные и занятые разрешения и число отказов по каждому классу эндпоинтов */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            int available = permits.get(endpointClass).availablePermits();
+            Map<String, Long> classStats = new LinkedHashMap<>();
+            classStats.put("limit", (long) limits.get(endpointClass));
+            classStats.put("inUse", (long) (limits.get(endpointClass) - available));
+            classStats.put("rejected", rejected.get(endpointClass).sum());
+            stats.put(endpointClass.name(), classStats);
+        }
+        return stats;
+    }
+
+    static EndpointClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        if (path.startsWith("/auth/")) {
+            return EndpointClass.AUTH;
+        }
+        if (path.startsWith("/api/cards/transfer")) {
+            return EndpointClass.TRANSFERS;
+        }
+        if (path.startsWith("/api/cards")) {
+            return HttpMethod.GET.matches(method) ? EndpointClass.CARD_READS : EndpointClass.ADMIN;
+        }
+        if (path.startsWith("/api/admin/") || (path.startsWith("/api/users/") && !path.equals("/api/users/me"))) {
+            return EndpointClass.ADMIN;
+        }
+        return null;
+    }
+
+    /** Возвращает разрешение, когда асинхронный ответ завершен, с ошибкой или по таймауту */
+    private static final class ReleaseOnCompletion implements AsyncListener {
+
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleaseOnCompletion(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Повторный startAsync в том же запросе: слушатель остается и вызывается в конце
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+
+    private void register(EndpointClass endpointClass, int limit) {
+        permits.put(endpointClass, new Semaphore(limit));
+        limits.put(endpointClass, limit);
+        rejected.put(endpointClass, new LongAdder());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bankcards.security;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Ключевой хэш номера карты (HMAC-SHA256) для поиска по индексу без сравнения открытого номера.
+ * Без ключа хэш нельзя подобрать перебором всех 16-значных номеров, как обычный SHA-256.
+ */
+@Component
+public class CardNumberHasher {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${cards.pan.hmac-key}")
+    private String hmacKey;
+
+    private Mac prototype;
+
+    @PostConstruct
+    public void init() {
+        if (hmacKey == null || hmacKey.isBlank()) {
+            throw new IllegalStateException("cards.pan.hmac-key (CARDS_PAN_HMAC_KEY) is not set");
+        }
+        try {
+            prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(Base64.getDecoder().decode(hmacKey), ALGORITHM));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Cannot initialize card number HMAC", e);
+        }
+    }
+
+    /** Хэш номера карты в hex; пробелы и дефисы в номере игнорируются */
+    public String hash(String number) {
+        try {
+            Mac mac = (Mac) prototype.clone();
+            return HexFormat.of().formatHex(mac.doFinal(normalize(number).getBytes(StandardCharsets.US_ASCII)));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC is not cloneable", e);
+        }
+    }
+
+    /** Последние 4 цифры номера карты */
+    public static String last4(String number) {
+        String digits = normalize(number);
+        return digits.length() < 4 ? digits : digits.substring(digits.length() - 4);
+    }
+
+    public static String normalize(String number) {
+        return number.replace(" ", "").replace("-", "");
+    }
+}
@@ -1,27 +1,48 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersions;
+    private final MeterRegistry meterRegistry;
+    private final Timer verificationTimer;
 
-    public JwtFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    /** true - пользователь собирается из claims токена, false - загружается из БД на каждый запрос */
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
+    public JwtFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService, TokenVersionRegistry tokenVersions,
+                     MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.tokenVersions = tokenVersions;
+        this.meterRegistry = meterRegistry;
+        this.verificationTimer = Timer.builder("jwt.verification")
+                .description("Разбор и проверка подписи JWT (включая попадания в кэш claims)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
@@ -31,24 +52,48 @@ public class JwtFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
+            Timer.Sample sample = Timer.start(meterRegistry);
             try {
-                String username = jwtUtil.extractUsername(token);
+                TokenClaims claims = jwtUtil.verify(token);
+                sample.stop(verificationTimer);
+                String username = claims.subject();
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = stateless
+                            ? userDetailsFromClaims(username, claims)
+                            : userDetailsService.loadUserByUsername(username);
 
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
+                    if (userDetails != null) {
+                        UsernamePasswordAuthenticationToken authToken =
+                                new UsernamePasswordAuthenticationToken(
+                                        userDetails,
+                                        null,
+                                        userDetails.getAuthorities()
+                                );
 
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                        SecurityContextHolder.getContext().setAuthentication(authToken);
+                    }
                 }
             } catch (Exception e) {
+                meterRegistry.counter("jwt.verification.failures", "reason", e.getClass().getSimpleName()).increment();
                 logger.error("error " + e);
             }
         }
         filterChain.doFilter(request, response);
     }
+
+    /** Собрать пользователя из проверенных claims без запроса к БД */
+    private UserDetails userDetailsFromClaims(String username, TokenClaims claims) {
+        if (!tokenVersions.isCurrent(username, claims.version())) {
+            meterRegistry.counter("jwt.verification.failures", "reason", "Revoked").increment();
+            logger.debug("Revoked token for user " + username);
+            return null;
+        }
+
+        List<SimpleGrantedAuthority> authorities = claims.roles().stream()
+                .filter(role -> !role.isBlank())
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+
+        return new User(username, "", authorities);
+    }
 }
@@ -1,6 +1,10 @@
 package com.example.bankcards.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -10,8 +14,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -19,22 +27,47 @@ public class JwtUtil {
 
     private SecretKey secretKey;
 
+    /** Парсер потокобезопасен, поэтому создается один раз */
+    private JwtParser parser;
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    /** Максимальное число проверенных токенов в кэше */
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private int claimsCacheMaxSize;
+
+    private final TokenVersionRegistry tokenVersions;
+
+    /** Кэш проверенных полей токена по SHA-256 токена, запись живет до exp токена */
+    private Cache<String, TokenClaims> claimsCache;
+
+    public JwtUtil(TokenVersionRegistry tokenVersions) {
+        this.tokenVersions = tokenVersions;
+    }
+
     @PostConstruct
     public void init() {
         byte[] decodedKey = Base64.getDecoder().decode(secret);
         this.secretKey = Keys.hmacShaKeyFor(decodedKey);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
+        this.claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(Expiry.creating((String key, TokenClaims claims) -> untilExpiration(claims)))
+                .recordStats()
+                .build();
     }
 
     public String generateToken(Map<String, Object> extraClaims, String username, List<String> roles) {
         // Объединяем роли в строку через запятую
         String roleString = String.join(",", roles);
         extraClaims.put("roles", roleString);
+        extraClaims.put(TokenVersionRegistry.VERSION_CLAIM, tokenVersions.currentVersion(username));
         return Jwts.builder()
                 .setClaims(extraClaims)
                 .setSubject(username)
@@ -45,34 +78,69 @@ public class JwtUtil {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        TokenClaims claims = verify(token);
+        return claims.subject().equals(userDetails.getUsername()) && !claims.isExpired();
     }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).subject();
+    }
+
+    /**
+     * Проверить подпись и срок действия токена и вернуть его поля.
+     * Повторный запрос с тем же токеном берет их из кэша без проверки подписи и разбора JSON;
+     * в кэше лежит неизменяемый TokenClaims, а не Claims от парсера, который можно изменить.
+     */
+    public TokenClaims verify(String token) {
+        String key = digest(token);
+        TokenClaims cached = claimsCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        TokenClaims verified = new TokenClaims(
+                claims.getSubject(),
+                extractRoles(claims),
+                claims.get(TokenVersionRegistry.VERSION_CLAIM, Integer.class),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+        if (verified.expiresAt() != null) {
+            claimsCache.put(key, verified);
+        }
+        return verified;
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public long getClaimsCacheHits() {
+        return claimsCache.stats().hitCount();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public long getClaimsCacheMisses() {
+        return claimsCache.stats().missCount();
+    }
+
+    public int getClaimsCacheSize() {
+        return (int) claimsCache.estimatedSize();
     }
 
-    private boolean isTokenExpired(String token) {
-        final Date expiration = extractClaim(token, Claims::getExpiration);
-        return expiration.before(new Date());
+    private static Duration untilExpiration(TokenClaims claims) {
+        Duration remaining = Duration.between(Instant.now(), claims.expiresAt());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     public List<String> extractRoles(String token) {
-        Claims claims = extractAllClaims(token);
+        return verify(token).roles();
+    }
+
+    private static List<String> extractRoles(Claims claims) {
         Object rolesObject = claims.get("roles");
         if (rolesObject instanceof List<?>) {
             return ((List<?>) rolesObject).stream()
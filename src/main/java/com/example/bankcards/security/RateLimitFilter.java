@@ -0,0 +1,304 @@
+package com.example.bankcards.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничивает частоту запросов к входу, регистрации и переводам корзинами токенов по IP, имени пользователя
+ * из тела запроса или subject JWT. Стоит в цепочке безопасности после JwtFilter: отказ 429 с Retry-After
+ * отдается до BCrypt и запросов к БД. Корзина - один AtomicLong (GCRA: время, когда корзина снова будет полной),
+ * запрос списывает токен одним CAS без блокировок. Корзины хранятся в Caffeine с ограничением размера и
+ * удаляются после простоя - к этому времени они все равно заполнились бы полностью.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public enum Route {
+        AUTHENTICATE,
+        REGISTER,
+        TRANSFERS
+    }
+
+    /** Чем ключуется корзина */
+    public enum KeySource {
+        IP,
+        /** Поле username JSON-тела запроса */
+        USERNAME,
+        /** Subject JWT; для неаутентифицированного запроса - IP */
+        SUBJECT
+    }
+
+    /** Корзина емкостью capacity, один токен восстанавливается за intervalNanos */
+    private record Rule(KeySource source, long capacity, long intervalNanos) {
+
+        private long burstNanos() {
+            return capacity * intervalNanos;
+        }
+    }
+
+    /** Тело входа и регистрации больше этого размера не разбирается, ограничение по имени не применяется */
+    private static final int MAX_BODY_BYTES = 4096;
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final Map<Route, List<Rule>> rules = new EnumMap<>(Route.class);
+    private final Map<Route, LongAdder> allowed = new EnumMap<>(Route.class);
+    private final Map<Route, LongAdder> rejected = new EnumMap<>(Route.class);
+    private final Cache<String, AtomicLong> buckets;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    /** Точка отсчета времени корзин: nanoTime может быть отрицательным */
+    private final long origin = System.nanoTime();
+
+    public RateLimitFilter(ObjectMapper objectMapper,
+                           @Value("${cards.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${cards.rate-limit.max-keys:100000}") long maxKeys,
+                           @Value("${cards.rate-limit.authenticate.per-ip.capacity:20}") long authIpCapacity,
+                           @Value("${cards.rate-limit.authenticate.per-ip.per-minute:60}") long authIpPerMinute,
+                           @Value("${cards.rate-limit.authenticate.per-username.capacity:5}") long authUserCapacity,
+                           @Value("${cards.rate-limit.authenticate.per-username.per-minute:6}") long authUserPerMinute,
+                           @Value("${cards.rate-limit.register.per-ip.capacity:5}") long registerIpCapacity,
+                           @Value("${cards.rate-limit.register.per-ip.per-minute:3}") long registerIpPerMinute,
+                           @Value("${cards.rate-limit.transfers.per-subject.capacity:50}") long transferCapacity,
+                           @Value("${cards.rate-limit.transfers.per-subject.per-minute:600}") long transferPerMinute) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        for (Route route : Route.values()) {
+            rules.put(route, new ArrayList<>());
+            allowed.put(route, new LongAdder());
+            rejected.put(route, new LongAdder());
+        }
+        register(Route.AUTHENTICATE, KeySource.IP, authIpCapacity, authIpPerMinute);
+        register(Route.AUTHENTICATE, KeySource.USERNAME, authUserCapacity, authUserPerMinute);
+        register(Route.REGISTER, KeySource.IP, registerIpCapacity, registerIpPerMinute);
+        register(Route.TRANSFERS, KeySource.SUBJECT, transferCapacity, transferPerMinute);
+
+        long idleNanos = rules.values().stream()
+                .flatMap(List::stream)
+                .mapToLong(Rule::burstNanos)
+                .max()
+                .orElse(0);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(Math.max(idleNanos, TimeUnit.SECONDS.toNanos(1))))
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Route route = enabled ? classify(request) : null;
+        if (route == null || rules.get(route).isEmpty()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest target = request;
+        String username = null;
+        if (rules.get(route).stream().anyMatch(rule -> rule.source() == KeySource.USERNAME)) {
+            byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+            target = new ReplayedBodyRequest(request, body);
+            if (body.length <= MAX_BODY_BYTES) {
+                username = readUsername(body);
+            }
+        }
+
+        for (Rule rule : rules.get(route)) {
+            String key = key(rule.source(), request, username);
+            if (key == null) {
+                continue;
+            }
+            long waitNanos = acquire(route.name() + ':' + rule.source() + ':' + key, rule);
+            if (waitNanos > 0) {
+                rejected.get(route).increment();
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(Math.max(1, Math.ceilDiv(waitNanos, TimeUnit.SECONDS.toNanos(1)))));
+                return;
+            }
+        }
+        allowed.get(route).increment();
+        filterChain.doFilter(target, response);
+    }
+
+    /** Пропущенные и отклоненные запросы по маршрутам и число хранимых корзин */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (Route route : Route.values()) {
+            Map<String, Long> routeStats = new LinkedHashMap<>();
+            routeStats.put("allowed", allowed.get(route).sum());
+            routeStats.put("rejected", rejected.get(route).sum());
+            stats.put(route.name(), routeStats);
+        }
+        stats.put("buckets", Map.of("size", buckets.estimatedSize()));
+        return stats;
+    }
+
+    static Route classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!HttpMethod.POST.matches(request.getMethod())) {
+            return null;
+        }
+        if (path.equals("/auth/authenticate")) {
+            return Route.AUTHENTICATE;
+        }
+        if (path.equals("/auth/register")) {
+            return Route.REGISTER;
+        }
+        if (path.startsWith("/api/cards/transfer")) {
+            return Route.TRANSFERS;
+        }
+        return null;
+    }
+
+    /** Списать токен; 0 - разрешено, иначе сколько наносекунд ждать следующего токена */
+    private long acquire(String key, Rule rule) {
+        AtomicLong fullAt = buckets.get(key, k -> new AtomicLong());
+        long now = System.nanoTime() - origin;
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + rule.intervalNanos();
+            long waitNanos = next - now - rule.burstNanos();
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private static String key(KeySource source, HttpServletRequest request, String username) {
+        return switch (source) {
+            case IP -> request.getRemoteAddr();
+            case USERNAME -> username;
+            case SUBJECT -> {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                yield authentication != null && authentication.isAuthenticated()
+                        && !(authentication instanceof AnonymousAuthenticationToken)
+                        ? truncate(authentication.getName())
+                        : "ip:" + request.getRemoteAddr();
+            }
+        };
+    }
+
+    /** Имя из JSON-тела; при ошибке разбора null - ответ 400 даст контроллер */
+    private String readUsername(byte[] body) {
+        try {
+            JsonNode username = objectMapper.readTree(body).path("username");
+            return username.isTextual() && !username.asText().isBlank() ? truncate(username.asText().trim()) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String truncate(String value) {
+        return value.length() > MAX_KEY_LENGTH ? value.substring(0, MAX_KEY_LENGTH) : value;
+    }
+
+    private void register(Route route, KeySource source, long capacity, long perMinute) {
+        if (capacity > 0 && perMinute > 0) {
+            rules.get(route).add(new Rule(source, capacity, TimeUnit.MINUTES.toNanos(1) / perMinute));
+        }
+    }
+
+    /** Запрос, тело которого заново отдает прочитанное начало и затем оставшуюся часть исходного потока */
+    private static final class ReplayedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] prefix;
+        private ServletInputStream inputStream;
+
+        private ReplayedBodyRequest(HttpServletRequest request, byte[] prefix) {
+            super(request);
+            this.prefix = prefix;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = replay(super.getInputStream());
+            }
+            return inputStream;
+        }
+
+        private ServletInputStream replay(ServletInputStream original) {
+            InputStream body = new SequenceInputStream(new ByteArrayInputStream(prefix), original);
+            return new ServletInputStream() {
+                private boolean finished;
+
+                @Override
+                public int read() throws IOException {
+                    int value = body.read();
+                    finished = value < 0;
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = body.read(buffer, offset, length);
+                    finished = read < 0;
+                    return read;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return finished;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    original.setReadListener(readListener);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding())
+                    : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
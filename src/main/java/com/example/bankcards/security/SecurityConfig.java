@@ -1,8 +1,12 @@
 package com.example.bankcards.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
 import com.example.bankcards.service.CustomUserDetailsService;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -14,7 +18,6 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -24,26 +27,62 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtFilter jwtFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final CustomUserDetailsService userDetailsService;
 
+    /** Стоимость BCrypt (log2 числа раундов) */
+    @Value("${cards.password-hashing.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    /** Потоков хэширования паролей, 0 - по числу ядер */
+    @Value("${cards.password-hashing.threads:0}")
+    private int passwordHashingThreads;
+
+    /** Фактический порт actuator (management.server.port может быть 0); /actuator/prometheus открыт только на нем */
+    private volatile int managementPort = -1;
+
+    @Value("${cards.password-hashing.queue-capacity:64}")
+    private int passwordHashingQueueCapacity;
+
+    @Value("${cards.password-hashing.timeout-ms:5000}")
+    private long passwordHashingTimeoutMs;
+
     @Autowired
-    public SecurityConfig(JwtFilter jwtFilter, CustomUserDetailsService userDetailsService) {
+    public SecurityConfig(JwtFilter jwtFilter, RateLimitFilter rateLimitFilter,
+                          CustomUserDetailsService userDetailsService) {
         this.jwtFilter = jwtFilter;
+        this.rateLimitFilter = rateLimitFilter;
         this.userDetailsService = userDetailsService;
     }
 
+    /** Контекст actuator на отдельном порту публикует событие и в родительский контекст */
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        if ("management".equals(event.getApplicationContext().getServerNamespace())) {
+            managementPort = event.getWebServer().getPort();
+        }
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // Повторная диспетчеризация потоковой выгрузки: исходный запрос уже проверен,
+                        // а JWT без сессии во второй диспетчеризации не разбирается
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/auth/**",
                                 "/api/users/me",
                                 "/v3/api-docs/**",   // Swagger docs
                                 "/swagger-ui/**",    // Swagger UI
-                                "/swagger-ui.html"   // Swagger HTML
+                                "/swagger-ui.html",  // Swagger HTML
+                                "/actuator/health"
                         ).permitAll()
+                        // Скрейп Prometheus без токена - только через внутренний порт management,
+                        // на порту приложения эндпоинт требует аутентификации
+                        .requestMatchers(request -> request.getLocalPort() == managementPort
+                                && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
@@ -51,7 +90,9 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                // После JwtFilter: для переводов ключ корзины - subject токена
+                .addFilterAfter(rateLimitFilter, JwtFilter.class);
 
         return http.build();
     }
@@ -71,8 +112,11 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /** BCrypt на отдельном ограниченном пуле, чтобы всплеск логинов не занимал потоки Tomcat */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder() {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength),
+                passwordHashingThreads > 0 ? passwordHashingThreads : Runtime.getRuntime().availableProcessors(),
+                passwordHashingQueueCapacity, passwordHashingTimeoutMs);
     }
 }
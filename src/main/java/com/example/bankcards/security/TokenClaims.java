@@ -0,0 +1,21 @@
+package com.example.bankcards.security;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Проверенные поля JWT, которые нужны при обработке запроса.
+ * Неизменяемы, поэтому один экземпляр из кэша JwtUtil безопасно разделяют все запросы с этим токеном.
+ *
+ * @param version claim "ver" (TokenVersionRegistry), null у токенов без версии
+ */
+public record TokenClaims(String subject, List<String> roles, Integer version, Instant expiresAt) {
+
+    public TokenClaims {
+        roles = List.copyOf(roles);
+    }
+
+    public boolean isExpired() {
+        return expiresAt == null || !expiresAt.isAfter(Instant.now());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Версии токенов пользователей.
+ * Каждый JWT содержит claim "ver" с версией на момент выдачи. Версия хранится в users.token_version:
+ * смена роли или удаление пользователя увеличивает ее в той же транзакции, и ранее выданные токены
+ * перестают приниматься на всех экземплярах. Проверка токена читает версию из локального кэша,
+ * поэтому к БД обращается не чаще раза в cache-ttl на пользователя; на экземпляре, где изменен
+ * пользователь, кэш сбрасывается сразу после фиксации, на остальных - не позже чем через cache-ttl.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    public static final String VERSION_CLAIM = "ver";
+
+    /** Версия удаленного пользователя: не совпадает ни с одним выданным токеном */
+    private static final int REMOVED = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<String, Integer> versions;
+
+    public TokenVersionRegistry(UserRepository userRepository,
+                                @Value("${jwt.token-version.cache-ttl-seconds:30}") long cacheTtlSeconds,
+                                @Value("${jwt.token-version.cache.max-size:100000}") long cacheMaxSize) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .maximumSize(cacheMaxSize)
+                .build();
+    }
+
+    /** Текущая версия токенов пользователя для выдачи нового токена; читается из БД */
+    public int currentVersion(String username) {
+        int version = load(username);
+        versions.put(username, version);
+        return version;
+    }
+
+    /** Проверить, что токен выдан с актуальной версией */
+    public boolean isCurrent(String username, Integer tokenVersion) {
+        int version = tokenVersion != null ? tokenVersion : 0;
+        return version == versions.get(username, this::load);
+    }
+
+    /**
+     * Отозвать все выданные пользователю токены: версия увеличивается в изменяемой сущности
+     * и фиксируется вместе с транзакцией, локальный кэш сбрасывается только после фиксации.
+     */
+    public void revoke(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        String username = user.getUsername();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versions.invalidate(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                versions.invalidate(username);
+            }
+        });
+    }
+
+    private int load(String username) {
+        return userRepository.findTokenVersionByUsername(username).orElse(REMOVED);
+    }
+}
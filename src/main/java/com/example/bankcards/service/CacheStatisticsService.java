@@ -0,0 +1,51 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.HibernateCacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Статистика кэша второго уровня по регионам; пусто, если cards.cache.statistics=false */
+@Service
+@RequiredArgsConstructor
+public class CacheStatisticsService {
+
+    private static final List<String> REGIONS = List.of(
+            HibernateCacheConfig.CARD_REGION,
+            HibernateCacheConfig.USER_REGION,
+            HibernateCacheConfig.USER_ROLES_REGION,
+            HibernateCacheConfig.USER_NATURAL_ID_REGION
+    );
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public Map<String, Map<String, Object>> getSecondLevelCacheStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        if (!statistics.isStatisticsEnabled()) {
+            return result;
+        }
+        for (String region : REGIONS) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics == null) {
+                continue;
+            }
+            long hits = regionStatistics.getHitCount();
+            long misses = regionStatistics.getMissCount();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("puts", regionStatistics.getPutCount());
+            stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            result.put(region, stats);
+        }
+        return result;
+    }
+}
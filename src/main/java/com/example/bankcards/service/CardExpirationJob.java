@@ -0,0 +1,240 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.JobCheckpoint;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.JobCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Перевод карт с истекшим сроком действия в EXPIRED.
+ * Диапазон id делится на сегменты, которые параллельно обрабатывают несколько потоков. Каждая порция -
+ * короткая транзакция: id выбираются без блокировок по индексу idx_cards_expiration, затем один UPDATE
+ * блокирует только эти строки, и в той же транзакции сдвигается позиция сегмента в job_checkpoints.
+ * После рестарта запуск того же дня продолжается с сохраненных позиций.
+ * На нескольких экземплярах запуск дня готовит тот, кто первым заблокировал строки job_checkpoints,
+ * а каждая порция читает позицию сегмента под блокировкой его строки: экземпляры делят сегменты
+ * и не обрабатывают одну порцию дважды.
+ */
+@Component
+@Slf4j
+public class CardExpirationJob {
+
+    public static final String JOB = "card-expiration";
+
+    private final CardRepository cardRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final TransferEngine transferEngine;
+    private final CardStatistics cardStatistics;
+
+    @Value("${cards.expiration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cards.expiration.segments:16}")
+    private int segments;
+
+    @Value("${cards.expiration.workers:4}")
+    private int workers;
+
+    @Value("${cards.expiration.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${cards.expiration.pause-ms:20}")
+    private long pauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong expired = new AtomicLong();
+
+    /** Результат порции: новая позиция сегмента и число переведенных в EXPIRED карт */
+    private record Chunk(long position, int expired) {
+    }
+
+    public CardExpirationJob(CardRepository cardRepository, JobCheckpointRepository checkpointRepository,
+                             TransferEngine transferEngine, CardStatistics cardStatistics) {
+        this.cardRepository = cardRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transferEngine = transferEngine;
+        this.cardStatistics = cardStatistics;
+    }
+
+    /** После старта: продолжить прерванный запуск или выполнить пропущенный */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    @Scheduled(cron = "${cards.expiration.cron:0 5 0 * * *}")
+    public void startScheduled() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /** Запустить обработку в фоновом потоке, если она еще не идет */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofPlatform().daemon().name("card-expiration").start(() -> {
+            try {
+                run(LocalDate.now());
+            } catch (RuntimeException e) {
+                log.error("Card expiration failed after {} cards", expired.get(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /** Перевести в EXPIRED карты, срок которых истек до указанной даты; вернуть число измененных */
+    public long run(LocalDate today) {
+        List<JobCheckpoint> pending = claimSegments(today).stream()
+                .filter(segment -> !segment.isCompleted())
+                .toList();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        long total = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, pending.size()),
+                Thread.ofPlatform().daemon().name("card-expiration-", 0).factory())) {
+            List<Future<Long>> results = new ArrayList<>(pending.size());
+            for (JobCheckpoint segment : pending) {
+                results.add(executor.submit(() -> expireSegment(segment, today)));
+            }
+            for (Future<Long> result : results) {
+                total += await(result);
+            }
+        }
+        log.info("Card expiration for {} completed: {} cards in {} segments", today, total, pending.size());
+        return total;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long getExpired() {
+        return expired.get();
+    }
+
+    /** Сегменты последнего запуска с позициями */
+    public List<JobCheckpoint> getSegments() {
+        return checkpointRepository.findByJobOrderByRangeStart(JOB);
+    }
+
+    /** Сегменты запуска дня: подготовить их или взять подготовленные другим экземпляром */
+    private List<JobCheckpoint> claimSegments(LocalDate today) {
+        try {
+            return transferEngine.execute("expiration", () -> prepareSegments(today));
+        } catch (DataIntegrityViolationException e) {
+            // Первый запуск: строк для блокировки не было, и сегменты одновременно вставил другой экземпляр
+            return checkpointRepository.findByJobOrderByRangeStart(JOB);
+        }
+    }
+
+    private List<JobCheckpoint> prepareSegments(LocalDate today) {
+        // Блокировка строк предыдущего запуска: второй экземпляр ждет и видит уже подготовленный запуск дня
+        List<JobCheckpoint> existing = checkpointRepository.findByJobForUpdate(JOB);
+        if (!existing.isEmpty() && existing.get(0).getRunDate().equals(today)) {
+            return existing;
+        }
+
+        if (!existing.isEmpty()) {
+            checkpointRepository.deleteByJob(JOB);
+        }
+        long maxId = cardRepository.findMaxId();
+        long span = Math.max(1, Math.ceilDiv(maxId, Math.max(segments, 1)));
+        LocalDateTime now = LocalDateTime.now();
+        List<JobCheckpoint> created = new ArrayList<>();
+        for (long start = 0; start < maxId; start += span) {
+            created.add(JobCheckpoint.builder()
+                    .id(JOB + ":" + start)
+                    .job(JOB)
+                    .runDate(today)
+                    .rangeStart(start)
+                    .rangeEnd(Math.min(start + span, maxId))
+                    .position(start)
+                    .updatedAt(now)
+                    .build());
+        }
+        return checkpointRepository.saveAll(created);
+    }
+
+    private long expireSegment(JobCheckpoint segment, LocalDate today) {
+        long total = 0;
+        while (true) {
+            // Позиция читается под блокировкой строки сегмента, а не из памяти: экземпляр, взявший
+            // тот же сегмент, ждет конца порции и продолжает с новой позиции
+            Chunk chunk = transferEngine.execute("expiration", () -> {
+                JobCheckpoint current = checkpointRepository.findByIdForUpdate(segment.getId())
+                        .filter(checkpoint -> checkpoint.getRunDate().equals(today) && !checkpoint.isCompleted())
+                        .orElse(null);
+                if (current == null) {
+                    return null;
+                }
+                List<Long> ids = cardRepository.findExpiredIdsBetween(current.getPosition(), current.getRangeEnd(),
+                        today, PageRequest.of(0, chunkSize));
+                long next = ids.size() < chunkSize ? current.getRangeEnd() : ids.get(ids.size() - 1);
+                cardStatistics.statusesChanged(ids, Status.EXPIRED);
+                int updated = cardRepository.expireCards(ids, today);
+                checkpointRepository.advance(current.getId(), next, LocalDateTime.now());
+                return new Chunk(next, updated);
+            });
+            if (chunk == null) {
+                break;
+            }
+
+            total += chunk.expired();
+            expired.addAndGet(chunk.expired());
+            if (chunk.expired() > 0) {
+                pause();
+            }
+        }
+        return total;
+    }
+
+    private static long await(Future<Long> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Card expiration interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Card expiration segment failed", e.getCause());
+        }
+    }
+
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Card expiration interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.repository.CardRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка карт построчно в NDJSON или CSV.
+ * Строки читаются курсором БД сразу в DTO, без сущностей в контексте персистентности,
+ * поэтому расход памяти не зависит от размера таблицы.
+ */
+@Service
+@RequiredArgsConstructor
+public class CardExportService {
+
+    /** Колонки выгрузки; номер всегда маскирован */
+    private static final Map<String, Function<CardDTO, Object>> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("id", CardDTO::getId);
+        COLUMNS.put("number", CardDTO::getNumber);
+        COLUMNS.put("owner", CardDTO::getOwnerUsername);
+        COLUMNS.put("userId", CardDTO::getUserId);
+        COLUMNS.put("expirationDate", CardDTO::getExpirationDate);
+        COLUMNS.put("status", CardDTO::getStatus);
+        COLUMNS.put("balance", CardDTO::getBalance);
+    }
+
+    private final CardRepository cardRepository;
+    private final ObjectMapper objectMapper;
+
+    /** Через сколько строк сбрасывать буфер ответа */
+    @Value("${cards.export.flush-every:5000}")
+    private int flushEvery;
+
+    /** Проверить и упорядочить запрошенные колонки до начала выгрузки */
+    public List<ExportColumn<CardDTO>> columns(List<String> names) {
+        return ExportColumn.select(COLUMNS, names);
+    }
+
+    /** Записать все карты в поток, по строке на карту */
+    @Transactional(readOnly = true)
+    public long exportCards(OutputStream outputStream, ExportFormat format, List<ExportColumn<CardDTO>> columns,
+                            boolean gzip) throws IOException {
+        ExportWriter<CardDTO> writer = new ExportWriter<>(outputStream, format, columns, gzip, objectMapper, flushEvery);
+        try (Stream<CardDTO> cards = cardRepository.streamAllDtos()) {
+            cards.forEach(writer::write);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.finish();
+    }
+}
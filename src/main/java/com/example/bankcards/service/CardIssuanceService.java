@@ -0,0 +1,245 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardIssueRequest;
+import com.example.bankcards.dto.CardIssueStatus;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardNumberRange;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardNumberRangeRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CardNumberHasher;
+import com.example.bankcards.util.Luhn;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Массовый выпуск карт одному пользователю.
+ * Задача выполняется в фоне: сначала одной короткой транзакцией резервируется диапазон порядковых номеров
+ * BIN, затем карты с номерами из этого диапазона (контрольная цифра по Луну) вставляются порциями -
+ * каждая порция в своей транзакции, INSERT отправляются пакетами hibernate.jdbc.batch_size.
+ * Проверять уникальность каждого номера не нужно: диапазон принадлежит только этой задаче.
+ */
+@Service
+@Slf4j
+public class CardIssuanceService {
+
+    /** Порядковый номер занимает 9 цифр: BIN (6) + номер (9) + контрольная цифра (1) */
+    private static final long MAX_SERIAL = 999_999_999L;
+
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final CardNumberRangeRepository rangeRepository;
+    private final CardJournalService journalService;
+    private final CardNumberHasher cardNumberHasher;
+    private final TransferEngine transferEngine;
+    private final CardStatistics cardStatistics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** BIN по умолчанию; не должен пересекаться с номерами, которые вводятся вручную через /api/cards/add */
+    @Value("${cards.issuance.bin:220220}")
+    private String defaultBin;
+
+    @Value("${cards.issuance.max-count:100000}")
+    private int maxCount;
+
+    @Value("${cards.issuance.chunk-size:1000}")
+    private int chunkSize;
+
+    /** Задачи выполняются по одной, остальные ждут в очереди */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("card-issuance").factory());
+
+    /** Состояния задач, завершенные хранятся сутки */
+    private final Cache<String, IssueJob> jobs = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofDays(1))
+            .maximumSize(1000)
+            .build();
+
+    public CardIssuanceService(CardRepository cardRepository, UserRepository userRepository,
+                               CardNumberRangeRepository rangeRepository, CardJournalService journalService,
+                               CardNumberHasher cardNumberHasher, TransferEngine transferEngine,
+                               CardStatistics cardStatistics) {
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.rangeRepository = rangeRepository;
+        this.journalService = journalService;
+        this.cardNumberHasher = cardNumberHasher;
+        this.transferEngine = transferEngine;
+        this.cardStatistics = cardStatistics;
+    }
+
+    /** Поставить выпуск в очередь; ход выполнения - getStatus(jobId) */
+    public CardIssueStatus submit(CardIssueRequest request) {
+        if (request.getCount() > maxCount) {
+            throw new IllegalArgumentException("Count must not exceed " + maxCount);
+        }
+        User user = userRepository.findById(request.getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+
+        IssueJob job = new IssueJob(UUID.randomUUID().toString(), user.getId(), user.getUsername(),
+                request.getBin() != null ? request.getBin() : defaultBin, request.getCount(),
+                request.getBalance() != null ? request.getBalance() : BigDecimal.ZERO);
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job));
+        return job.toStatus();
+    }
+
+    public CardIssueStatus getStatus(String jobId) {
+        IssueJob job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Issue job not found");
+        }
+        return job.toStatus();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(IssueJob job) {
+        job.startedAt = LocalDateTime.now();
+        job.state = CardIssueStatus.State.RUNNING;
+        try {
+            long firstSerial = reserve(job.bin, job.requested);
+            for (long offset = 0; offset < job.requested; offset += chunkSize) {
+                long chunkFirst = firstSerial + offset;
+                int size = (int) Math.min(chunkSize, job.requested - offset);
+                List<Long> ids = transferEngine.execute("issuance", () -> insertChunk(job, chunkFirst, size));
+                if (job.firstCardId == null) {
+                    job.firstCardId = ids.get(0);
+                }
+                job.lastCardId = ids.get(ids.size() - 1);
+                job.issued.addAndGet(size);
+            }
+            job.finishedAt = LocalDateTime.now();
+            job.state = CardIssueStatus.State.COMPLETED;
+            CardIssueStatus status = job.toStatus();
+            log.info("Issued {} cards with BIN {} for user {} in {} ms ({} cards/s)", status.getIssued(), job.bin,
+                    job.userId, status.getElapsedMs(), Math.round(status.getCardsPerSecond()));
+        } catch (RuntimeException e) {
+            job.error = e.getMessage();
+            job.finishedAt = LocalDateTime.now();
+            job.state = CardIssueStatus.State.FAILED;
+            log.error("Card issue job {} failed after {} cards", job.id, job.issued.get(), e);
+        }
+    }
+
+    /** Зарезервировать count порядковых номеров BIN, вернуть первый */
+    private long reserve(String bin, long count) {
+        if (!rangeRepository.existsById(bin)) {
+            try {
+                transferEngine.execute("issuance", () -> rangeRepository.saveAndFlush(new CardNumberRange(bin, 0L)));
+            } catch (DataIntegrityViolationException e) {
+                // Счетчик BIN одновременно создан другим экземпляром приложения
+            }
+        }
+        return transferEngine.execute("issuance", () -> {
+            CardNumberRange range = rangeRepository.findByIdForUpdate(bin)
+                    .orElseThrow(() -> new IllegalStateException("Card number range not found for BIN " + bin));
+            long first = range.getNextSerial();
+            if (first + count - 1 > MAX_SERIAL) {
+                throw new IllegalArgumentException("Card number range exhausted for BIN " + bin);
+            }
+            range.setNextSerial(first + count);
+            return first;
+        });
+    }
+
+    private List<Long> insertChunk(IssueJob job, long firstSerial, int size) {
+        // Тысячи новых карт не должны вытеснять из кэша второго уровня карты, с которыми работают
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        User user = userRepository.getReferenceById(job.userId);
+        LocalDate expirationDate = LocalDate.now().plusYears(3);
+
+        List<Card> cards = new ArrayList<>(size);
+        StringBuilder number = new StringBuilder(16);
+        for (int i = 0; i < size; i++) {
+            number.setLength(0);
+            number.append(job.bin).append(String.format("%09d", firstSerial + i));
+            number.append(Luhn.checkDigit(number));
+            String cardNumber = number.toString();
+            cards.add(Card.builder()
+                    .number(cardNumber)
+                    .numberHash(cardNumberHasher.hash(cardNumber))
+                    .last4(CardNumberHasher.last4(cardNumber))
+                    .expirationDate(expirationDate)
+                    .status(Status.ACTIVE)
+                    .balance(job.balance)
+                    .owner(job.username)
+                    .user(user)
+                    .build());
+        }
+        cardRepository.saveAll(cards);
+        cards.forEach(journalService::recordOpening);
+        cardStatistics.cardsIssued(job.userId, Status.ACTIVE, size, job.balance, expirationDate);
+
+        List<Long> ids = new ArrayList<>(size);
+        for (Card card : cards) {
+            ids.add(card.getId());
+        }
+        return ids;
+    }
+
+    /** Задача выпуска: параметры и ход выполнения, читается из потоков запросов */
+    private static final class IssueJob {
+
+        private final String id;
+        private final Long userId;
+        private final String username;
+        private final String bin;
+        private final long requested;
+        private final BigDecimal balance;
+        private final AtomicLong issued = new AtomicLong();
+
+        private volatile CardIssueStatus.State state = CardIssueStatus.State.QUEUED;
+        private volatile Long firstCardId;
+        private volatile Long lastCardId;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private IssueJob(String id, Long userId, String username, String bin, long requested, BigDecimal balance) {
+            this.id = id;
+            this.userId = userId;
+            this.username = username;
+            this.bin = bin;
+            this.requested = requested;
+            this.balance = balance;
+        }
+
+        private CardIssueStatus toStatus() {
+            long issuedNow = issued.get();
+            LocalDateTime start = startedAt;
+            LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+            long elapsedMs = start != null ? Duration.between(start, end).toMillis() : 0;
+            double perSecond = elapsedMs > 0 ? issuedNow * 1000.0 / elapsedMs : 0.0;
+            return new CardIssueStatus(id, userId, bin, state, requested, issuedNow, firstCardId, lastCardId,
+                    start, finishedAt, elapsedMs, perSecond, error);
+        }
+    }
+}
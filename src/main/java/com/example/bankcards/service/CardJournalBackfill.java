@@ -0,0 +1,124 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Открытие журнала у карт, созданных до его появления: запись OPENING с номером 0 и текущим балансом
+ * за вычетом уже пронумерованных записей. Без нее восстановление баланса начиналось бы с нуля.
+ * Идет в фоне после старта порциями по id; строки порции блокируются, поэтому параллельный перевод
+ * не может пройти между расчетом OPENING и его записью.
+ */
+@Component
+@Slf4j
+public class CardJournalBackfill {
+
+    private final CardRepository cardRepository;
+    private final CardJournalService journalService;
+    private final TransferEngine transferEngine;
+
+    @Value("${cards.journal.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cards.journal.backfill.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${cards.journal.backfill.pause-ms:50}")
+    private long pauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong opened = new AtomicLong();
+
+    public CardJournalBackfill(CardRepository cardRepository, CardJournalService journalService,
+                               TransferEngine transferEngine) {
+        this.cardRepository = cardRepository;
+        this.journalService = journalService;
+        this.transferEngine = transferEngine;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /** Запустить заполнение в фоновом потоке, если оно еще не идет */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofPlatform().daemon().name("card-journal-backfill").start(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                log.error("Card journal backfill failed after {} cards", opened.get(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /** Открыть журнал всех карт без OPENING, вернуть число открытых */
+    public long run() {
+        long afterId = 0;
+        long total = 0;
+        while (true) {
+            List<Long> ids = cardRepository.findIdsWithoutJournalAfter(afterId, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            // Наличие OPENING перепроверяется под блокировкой: карта могла быть открыта другим узлом
+            long count = transferEngine.execute("journal-backfill", () -> {
+                long chunkOpened = 0;
+                for (Card card : cardRepository.findAllByIdInForUpdate(ids)) {
+                    if (journalService.openJournal(card)) {
+                        chunkOpened++;
+                    }
+                }
+                return chunkOpened;
+            });
+
+            afterId = ids.get(ids.size() - 1);
+            total += count;
+            opened.addAndGet(count);
+            pause();
+        }
+        if (total > 0) {
+            log.info("Card journal backfill completed: {} cards", total);
+        }
+        return total;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long getOpened() {
+        return opened.get();
+    }
+
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Card journal backfill interrupted", e);
+        }
+    }
+}
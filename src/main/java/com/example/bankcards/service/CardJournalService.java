@@ -0,0 +1,215 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BalanceRebuildDTO;
+import com.example.bankcards.dto.CardTransactionDTO;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.entity.BalanceSnapshot;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.entity.enums.TransactionType;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Журнал операций по картам.
+ * Записи добавляются в той же транзакции, что и изменение баланса, и нумеруются в журнале карты подряд
+ * (Card.journalSeq): строка карты меняется в той же транзакции, поэтому порядок номеров совпадает
+ * с порядком фиксации. Периодические снимки позволяют восстановить баланс по последнему снимку
+ * и короткому хвосту журнала.
+ */
+@Service
+@RequiredArgsConstructor
+public class CardJournalService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final CardTransactionRepository transactionRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final CardRepository cardRepository;
+    private final TransferEngine transferEngine;
+
+    /** Сколько записей журнала должно накопиться с последнего снимка, чтобы сделать новый */
+    @Value("${cards.journal.snapshot-threshold:100}")
+    private long snapshotThreshold;
+
+    /** Сколько карт обрабатывается за один запуск снимков */
+    @Value("${cards.journal.snapshot-batch-size:500}")
+    private int snapshotBatchSize;
+
+    /** Записать открытие карты с начальным балансом: запись журнала с номером 0 */
+    public void recordOpening(Card card) {
+        transactionRepository.save(entry(card, 0L, null, TransactionType.OPENING, card.getBalance(), LocalDateTime.now()));
+    }
+
+    /** Записать перевод: списание с одной карты и зачисление на другую */
+    public void recordTransfer(Card fromCard, Card toCard, BigDecimal amount) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionRepository.save(entry(fromCard, nextSeq(fromCard), toCard.getId(), TransactionType.DEBIT, amount.negate(), now));
+        transactionRepository.save(entry(toCard, nextSeq(toCard), fromCard.getId(), TransactionType.CREDIT, amount, now));
+    }
+
+    /**
+     * Открыть журнал карты, созданной до его появления, если он еще не открыт.
+     * Вызывается под блокировкой строки карты: OPENING получает баланс без уже пронумерованных записей,
+     * чтобы переводы, прошедшие до заполнения, не учитывались дважды. Вернуть true, если запись добавлена.
+     */
+    public boolean openJournal(Card card) {
+        if (transactionRepository.existsByCardIdAndSeq(card.getId(), 0L)) {
+            return false;
+        }
+        BigDecimal opening = card.getBalance().subtract(transactionRepository.sumAmountsAfter(card.getId(), 0L));
+        transactionRepository.save(CardTransaction.builder()
+                .cardId(card.getId())
+                .seq(0L)
+                .type(TransactionType.OPENING)
+                .amount(opening)
+                .balanceAfter(opening)
+                .createdAt(LocalDateTime.now())
+                .build());
+        return true;
+    }
+
+    /** История операций по карте, новые первыми (USER - только свои карты) */
+    @Transactional(readOnly = true)
+    public CursorPage<CardTransactionDTO> getTransactions(Long cardId, String cursor, int size, Authentication authentication) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+        if (!isAdmin(authentication) && !card.getUser().getUsername().equals(authentication.getName())) {
+            throw new IllegalArgumentException("Вы можете просматривать историю только своих карт");
+        }
+
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // Запрашиваем на одну запись больше, чтобы понять, есть ли следующая страница
+        PageRequest page = PageRequest.of(0, limit + 1);
+
+        List<CardTransaction> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findLatest(cardId, page);
+        } else {
+            CardTransaction position = decodeCursor(cursor);
+            transactions = transactionRepository.findBefore(cardId, position.getCreatedAt(), position.getId(), page);
+        }
+
+        String nextCursor = null;
+        if (transactions.size() > limit) {
+            transactions = transactions.subList(0, limit);
+            nextCursor = encodeCursor(transactions.get(limit - 1));
+        }
+
+        List<CardTransactionDTO> items = transactions.stream()
+                .map(CardTransactionDTO::fromEntity)
+                .collect(Collectors.toList());
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    /** Восстановить баланс карты по последнему снимку и записям журнала после него */
+    @Transactional(readOnly = true)
+    public BalanceRebuildDTO rebuildBalance(Long cardId) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+
+        BalanceSnapshot snapshot = snapshotRepository.findFirstByCardIdOrderByLastSeqDesc(cardId)
+                .orElse(null);
+        if (snapshot == null && !transactionRepository.existsByCardIdAndSeq(cardId, 0L)) {
+            // Карта создана до журнала, и CardJournalBackfill еще не записал ее OPENING
+            throw new IllegalArgumentException("Card journal is not opened yet");
+        }
+        BigDecimal base = snapshot != null ? snapshot.getBalance() : BigDecimal.ZERO;
+        long afterSeq = snapshot != null ? snapshot.getLastSeq() : -1L;
+
+        BigDecimal rebuilt = base.add(transactionRepository.sumAmountsAfter(cardId, afterSeq));
+        long replayed = transactionRepository.countAfter(cardId, afterSeq);
+        return new BalanceRebuildDTO(cardId, card.getBalance(), rebuilt, snapshot != null ? afterSeq : null, replayed);
+    }
+
+    /**
+     * Сделать снимки баланса для карт, у которых после последнего снимка накопилось не меньше
+     * snapshotThreshold записей. Кандидаты выбираются по счетчику Card.journalPending через индекс,
+     * без просмотра журнала; каждая карта снимается в своей короткой транзакции.
+     */
+    @Scheduled(fixedDelayString = "${cards.journal.snapshot-delay-ms:300000}")
+    public void createDueSnapshots() {
+        List<Long> dueCards = cardRepository.findIdsDueForSnapshot(
+                snapshotThreshold, PageRequest.of(0, snapshotBatchSize));
+        for (Long cardId : dueCards) {
+            transferEngine.execute("journal-snapshot", () -> snapshot(cardId));
+        }
+    }
+
+    /**
+     * Снимок под блокировкой строки карты: баланс и номер последней записи берутся из одной версии строки,
+     * поэтому снимок согласован с журналом независимо от порядка выдачи id записей.
+     */
+    private BalanceSnapshot snapshot(Long cardId) {
+        Card card = cardRepository.findByIdForUpdate(cardId).orElse(null);
+        if (card == null || card.getJournalPending() < snapshotThreshold) {
+            return null;
+        }
+        card.setJournalPending(0);
+        return snapshotRepository.save(BalanceSnapshot.builder()
+                .cardId(cardId)
+                .balance(card.getBalance())
+                .lastSeq(card.getJournalSeq())
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    /** Следующий номер в журнале карты; изменение карты фиксируется вместе с записью */
+    private static long nextSeq(Card card) {
+        card.setJournalSeq(card.getJournalSeq() + 1);
+        card.setJournalPending(card.getJournalPending() + 1);
+        return card.getJournalSeq();
+    }
+
+    private CardTransaction entry(Card card, long seq, Long counterpartyCardId, TransactionType type,
+                                  BigDecimal amount, LocalDateTime createdAt) {
+        return CardTransaction.builder()
+                .cardId(card.getId())
+                .seq(seq)
+                .counterpartyCardId(counterpartyCardId)
+                .type(type)
+                .amount(amount)
+                .balanceAfter(card.getBalance())
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+
+    private static String encodeCursor(CardTransaction last) {
+        String position = last.getCreatedAt() + "_" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Разобрать курсор в позицию (createdAt, id) последней показанной записи */
+    private static CardTransaction decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf('_');
+            return CardTransaction.builder()
+                    .createdAt(LocalDateTime.parse(position.substring(0, separator)))
+                    .id(Long.valueOf(position.substring(separator + 1)))
+                    .build();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.security.CardNumberHasher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Заполнение number_hash и last4 у карт, созданных до появления этих колонок.
+ * Идет в фоне после старта порциями по id: каждая порция - короткая транзакция, которая блокирует
+ * только свои строки, между порциями пауза. Благодаря @DynamicUpdate на Card UPDATE трогает только
+ * number_hash/last4 и не затирает балансы, измененные переводами за это время.
+ */
+@Component
+@Slf4j
+public class CardNumberBackfill {
+
+    private final CardRepository cardRepository;
+    private final CardNumberHasher cardNumberHasher;
+    private final TransferEngine transferEngine;
+
+    @Value("${cards.pan.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cards.pan.backfill.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${cards.pan.backfill.pause-ms:50}")
+    private long pauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong processed = new AtomicLong();
+
+    public CardNumberBackfill(CardRepository cardRepository, CardNumberHasher cardNumberHasher,
+                              TransferEngine transferEngine) {
+        this.cardRepository = cardRepository;
+        this.cardNumberHasher = cardNumberHasher;
+        this.transferEngine = transferEngine;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /** Запустить заполнение в фоновом потоке, если оно еще не идет */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofPlatform().daemon().name("card-number-backfill").start(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                log.error("Card number backfill failed after {} cards", processed.get(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /** Заполнить все карты без хэша, вернуть число обработанных */
+    public long run() {
+        long afterId = 0;
+        long total = 0;
+        while (true) {
+            long from = afterId;
+            // Конфликт версии с параллельным переводом откатывает порцию, и она повторяется целиком
+            List<Card> chunk = transferEngine.execute("number-backfill", () -> {
+                List<Card> cards = cardRepository.findWithoutNumberHashAfter(from, PageRequest.of(0, chunkSize));
+                for (Card card : cards) {
+                    card.setNumberHash(cardNumberHasher.hash(card.getNumber()));
+                    card.setLast4(CardNumberHasher.last4(card.getNumber()));
+                }
+                return cards;
+            });
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            afterId = chunk.get(chunk.size() - 1).getId();
+            total += chunk.size();
+            processed.addAndGet(chunk.size());
+            pause();
+        }
+        if (total > 0) {
+            log.info("Card number backfill completed: {} cards", total);
+        }
+        return total;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Card number backfill interrupted", e);
+        }
+    }
+}
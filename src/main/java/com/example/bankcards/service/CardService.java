@@ -1,29 +1,86 @@
 package com.example.bankcards.service;
 
 
+import com.example.bankcards.dto.BatchTransferResult;
+import com.example.bankcards.dto.BulkStatusResult;
+import com.example.bankcards.dto.CardBalanceDTO;
 import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardStatusFilter;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.TransferItemResult;
+import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.Status;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CardNumberHasher;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "cards.service", extraTags = {"service", "card"}, histogram = true)
 public class CardService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
+    /** Способ защиты карт от параллельных изменений при переводе */
+    public enum LockingMode {
+        /** SELECT ... FOR UPDATE в порядке id: конфликтующие переводы ждут друг друга */
+        PESSIMISTIC,
+        /** Чтение без блокировок, конфликт обнаруживается по @Version при фиксации и повторяется */
+        OPTIMISTIC
+    }
+
+    /** Порция массовой смены статуса: отобранные id и число измененных строк */
+    private record StatusChunk(List<Long> ids, int updated) {
+    }
+
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final TransferEngine transferEngine;
+    private final CardJournalService journalService;
+    private final MeterRegistry meterRegistry;
+    private final CardNumberHasher cardNumberHasher;
+    private final CardStatistics cardStatistics;
+
+    @Value("${cards.transfer.locking:PESSIMISTIC}")
+    private LockingMode lockingMode;
+
+    /** Максимальное число переводов в одном пакетном запросе */
+    @Value("${cards.transfer.batch.max-size:10000}")
+    private int batchMaxSize;
+
+    /** Число переводов в одной транзакции пакетного запроса */
+    @Value("${cards.transfer.batch.chunk-size:200}")
+    private int batchChunkSize;
+
+    /** Число карт в одном UPDATE массовой смены статуса */
+    @Value("${cards.bulk-status.chunk-size:500}")
+    private int bulkStatusChunkSize;
+
+    /** Максимальное число карт в одном запросе балансов */
+    @Value("${cards.balance.batch.max-size:50}")
+    private int balanceBatchMaxSize;
 
     /** Создать новую карту для пользователя */
     @Transactional
@@ -40,6 +97,8 @@ public class CardService {
 
         Card card = Card.builder()
                 .number(cardDTO.getNumber())
+                .numberHash(cardNumberHasher.hash(cardDTO.getNumber()))
+                .last4(CardNumberHasher.last4(cardDTO.getNumber()))
                 .expirationDate(LocalDate.now().plusYears(3))
                 .status(cardDTO.getStatus() != null ? Status.valueOf(cardDTO.getStatus()) : Status.ACTIVE)
                 .balance(balance)
@@ -48,12 +107,21 @@ public class CardService {
                 .build();
 
         Card savedCard = cardRepository.save(card);
+        journalService.recordOpening(savedCard);
+        cardStatistics.cardCreated(savedCard);
         return CardDTO.fromEntity(savedCard);
     }
 
+    /** Найти карту по полному номеру: поиск только по индексу ключевого хэша, открытый номер не сравнивается */
+    @Transactional(readOnly = true)
+    public CardDTO findCardByNumber(String number) {
+        return cardRepository.findDtoByNumberHash(cardNumberHasher.hash(number))
+                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+    }
+
     /** Получить пользователя по authentication */
     public User findUserByAuthentication(Authentication authentication) {
-        User user = userRepository.findByUsername(authentication.getName())
+        User user = userRepository.findByNaturalUsername(authentication.getName())
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
         return user;
     }
@@ -66,87 +134,206 @@ public class CardService {
     }
 
     /** Получить карту по id */
+    @Transactional(readOnly = true)
     public CardDTO getCardDTO(Long cardId) {
-        Card card = cardRepository.findById(cardId)
+        return cardRepository.findDtoById(cardId)
                 .orElseThrow(() -> new IllegalArgumentException("Card not found"));
-        return CardDTO.fromEntity(card);
     }
 
     /** Получить все карты пользователя (для ADMIN) */
+    @Transactional(readOnly = true)
     public List<CardDTO> getAllUserCards(Long userId) {
-        List<Card> cards = cardRepository.findAllByUserId(userId);
-        return cards.stream()
-                .map(card -> new CardDTO(card.getId(), card.getNumber(), card.getOwner(),
-                        card.getUser().getId(), card.getExpirationDate(), card.getStatus().name(), card.getBalance())).collect(Collectors.toList());
+        return cardRepository.findDtosByUserId(userId);
     }
 
     /** Получить все свои карты */
-    @Transactional
+    @Transactional(readOnly = true)
     public List<CardDTO> getAllMyCards(Authentication authentication) {
         User user = findUserByAuthentication(authentication);
-        List<Card> cards = cardRepository.findAllByUserId(user.getId());
-        System.out.println("User: " + user);
-        System.out.println("User's cards: " + user.getCards());
-        System.out.println("Количество карт пользователя: " + user.getCards().size());
-        return cards.stream()
-                .map(card -> new CardDTO(card.getId(), card.getNumber(), card.getOwner(),
-                        card.getUser().getId(), card.getExpirationDate(), card.getStatus().name(), card.getBalance())).collect(Collectors.toList());
+        List<CardDTO> cards = cardRepository.findDtosByUserId(user.getId());
+        return cards;
     }
 
 
     /** Получить все карты (для ADMIN) */
+    @Transactional(readOnly = true)
     public List<CardDTO> getAllCards() {
-        return cardRepository.findAll()
-                .stream()
-                .map(CardDTO::fromEntity)
-                .collect(Collectors.toList());
+        return cardRepository.findAllDtos();
+    }
+
+    /** Keyset-страница всех карт (для ADMIN) */
+    @Transactional(readOnly = true)
+    public CursorPage<CardDTO> getCardsPage(Long cursor, int size) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<CardDTO> cards = cardRepository.findDtosAfter(cursor != null ? cursor : 0L, PageRequest.of(0, limit));
+        String nextCursor = cards.size() == limit ? String.valueOf(cards.get(limit - 1).getId()) : null;
+        return new CursorPage<>(cards, nextCursor);
     }
 
     /** Блокировка карты */
-    @Transactional
     public CardDTO blockCard(Long cardId) {
-        Card card = findCardById(cardId);
-        card.setStatus(Status.BLOCKED);
-        return CardDTO.fromEntity(cardRepository.save(card));
+        return transferEngine.execute("block", () -> {
+            Card card = findCardById(cardId);
+            cardStatistics.statusChanged(card.getStatus(), Status.BLOCKED, 1);
+            card.setStatus(Status.BLOCKED);
+            return CardDTO.fromEntity(cardRepository.save(card));
+        });
     }
 
-    /** Подать запрос на блокировку карты */
-    @Transactional
+    /**
+     * Подать запрос на блокировку карты. Запрос возможен только для активной карты: отклоненная заявка
+     * возвращает карту в ACTIVE, и заявка на заблокированную администратором карту разблокировала бы ее.
+     */
     public CardDTO blocQueryCard(Long cardId, Authentication authentication) {
-        Card card = findCardById(cardId);
-        User user = findUserByAuthentication(authentication);
-        if (card.getUser().equals(user)) {
-            card.setStatus(Status.LOCK_REQUEST);
-        } else
-            throw new IllegalArgumentException("Cards belong to different users");
-
-        return CardDTO.fromEntity(cardRepository.save(card));
+        return transferEngine.execute("block-request", () -> {
+            Card card = findCardById(cardId);
+            User user = findUserByAuthentication(authentication);
+            if (card.getUser().equals(user)) {
+                if (card.getStatus() != Status.ACTIVE || isExpired(card, LocalDate.now())) {
+                    throw new IllegalArgumentException("Only active cards can be requested for blocking");
+                }
+                cardStatistics.statusChanged(card.getStatus(), Status.LOCK_REQUEST, 1);
+                card.setStatus(Status.LOCK_REQUEST);
+                card.setClaimedBy(null);
+                card.setClaimedUntil(null);
+            } else
+                throw new IllegalArgumentException("Cards belong to different users");
+
+            return CardDTO.fromEntity(cardRepository.save(card));
+        });
     }
 
     /** Активация карты */
-    @Transactional
     public CardDTO activateCard(Long cardId) {
-        Card card = findCardById(cardId);
-        card.setStatus(Status.ACTIVE);
-        return CardDTO.fromEntity(cardRepository.save(card));
+        return transferEngine.execute("activate", () -> {
+            Card card = findCardById(cardId);
+            if (isExpired(card, LocalDate.now())) {
+                throw new IllegalArgumentException("Card is expired");
+            }
+            cardStatistics.statusChanged(card.getStatus(), Status.ACTIVE, 1);
+            card.setStatus(Status.ACTIVE);
+            return CardDTO.fromEntity(cardRepository.save(card));
+        });
+    }
+
+    /**
+     * Сменить статус всех карт по фильтру, например заблокировать все карты пользователя или все LOCK_REQUEST.
+     * Порция - одна короткая транзакция: id отбираются без загрузки сущностей, затем один UPDATE
+     * меняет статус и версию, из кэша второго уровня удаляются только измененные карты.
+     */
+    public BulkStatusResult bulkUpdateStatus(CardStatusFilter filter, Status target) {
+        if (filter.isEmpty()) {
+            throw new IllegalArgumentException("At least one filter is required");
+        }
+
+        LocalDate today = LocalDate.now();
+        long afterId = 0;
+        long updated = 0;
+        int chunks = 0;
+        while (true) {
+            long from = afterId;
+            StatusChunk chunk = transferEngine.execute("bulk-status", () -> {
+                List<Long> ids = cardRepository.findIdsForStatusChange(filter, target, from, today, bulkStatusChunkSize);
+                cardStatistics.statusesChanged(ids, target);
+                return new StatusChunk(ids, cardRepository.updateStatus(ids, target, today));
+            });
+            if (chunk.ids().isEmpty()) {
+                break;
+            }
+            updated += chunk.updated();
+            chunks++;
+            afterId = chunk.ids().get(chunk.ids().size() - 1);
+            if (chunk.ids().size() < bulkStatusChunkSize) {
+                break;
+            }
+        }
+        return new BulkStatusResult(target.name(), updated, chunks);
     }
 
     /** Перевод между своими картами */
-    @Transactional
     public void transfer(Long fromCardId, Long toCardId, BigDecimal amount) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Amount must be positive");
+            throw rejectTransfer("non_positive_amount", "Amount must be positive");
         }
 
-        Card fromCard = findCardById(fromCardId);
-        Card toCard = findCardById(toCardId);
+        transferEngine.execute("transfer", () -> {
+            Map<Long, Card> locked = loadCardsForUpdate(List.of(fromCardId, toCardId));
+            applyTransfer(locked, fromCardId, toCardId, amount);
+            return null;
+        });
+    }
+
+    /**
+     * Пакетный перевод. Переводы выполняются частями, каждая часть - одна транзакция:
+     * все карты части блокируются одним запросом, изменения балансов и записи журнала
+     * отправляются в БД пакетами при фиксации. Отклоненный перевод не влияет на остальные.
+     */
+    public BatchTransferResult transferBatch(List<TransferRequest> transfers) {
+        if (transfers.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Batch size must not exceed " + batchMaxSize);
+        }
+
+        List<TransferItemResult> results = new ArrayList<>(transfers.size());
+        for (int start = 0; start < transfers.size(); start += batchChunkSize) {
+            int chunkStart = start;
+            List<TransferRequest> chunk = transfers.subList(start, Math.min(start + batchChunkSize, transfers.size()));
+            try {
+                results.addAll(transferEngine.execute("transfer-batch", () -> applyChunk(chunk, chunkStart)));
+            } catch (RuntimeException e) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(TransferItemResult.failed(chunkStart + i, e.getMessage()));
+                }
+            }
+        }
+        return BatchTransferResult.of(results);
+    }
+
+    private List<TransferItemResult> applyChunk(List<TransferRequest> chunk, int chunkStart) {
+        Set<Long> cardIds = new HashSet<>();
+        for (TransferRequest request : chunk) {
+            if (request.getFromCardId() != null) cardIds.add(request.getFromCardId());
+            if (request.getToCardId() != null) cardIds.add(request.getToCardId());
+        }
+        Map<Long, Card> locked = loadCardsForUpdate(cardIds);
+
+        List<TransferItemResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            TransferRequest request = chunk.get(i);
+            try {
+                if (request.getFromCardId() == null || request.getToCardId() == null || request.getAmount() == null) {
+                    throw rejectTransfer("missing_fields", "fromCardId, toCardId and amount are required");
+                }
+                if (request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                    throw rejectTransfer("non_positive_amount", "Amount must be positive");
+                }
+                applyTransfer(locked, request.getFromCardId(), request.getToCardId(), request.getAmount());
+                results.add(TransferItemResult.ok(chunkStart + i));
+            } catch (IllegalArgumentException e) {
+                results.add(TransferItemResult.rejected(chunkStart + i, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /** Перевод между заблокированными картами внутри текущей транзакции */
+    private void applyTransfer(Map<Long, Card> locked, Long fromCardId, Long toCardId, BigDecimal amount) {
+        Card fromCard = locked.get(fromCardId);
+        Card toCard = locked.get(toCardId);
+        if (fromCard == null || toCard == null) {
+            throw rejectTransfer("card_not_found", "Card not found");
+        }
 
         if (!fromCard.getUser().getId().equals(toCard.getUser().getId())) {
-            throw new IllegalArgumentException("Cards belong to different users");
+            throw rejectTransfer("different_owners", "Cards belong to different users");
+        }
+
+        LocalDate today = LocalDate.now();
+        if (isExpired(fromCard, today) || isExpired(toCard, today)) {
+            throw rejectTransfer("card_expired", "Card is expired");
         }
 
         if (fromCard.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient funds");
+            throw rejectTransfer("insufficient_funds", "Insufficient funds");
         }
 
         fromCard.setBalance(fromCard.getBalance().subtract(amount));
@@ -154,6 +341,35 @@ public class CardService {
 
         cardRepository.save(fromCard);
         cardRepository.save(toCard);
+        journalService.recordTransfer(fromCard, toCard, amount);
+    }
+
+    /** Срок карты истек, даже если CardExpirationJob еще не перевел ее в EXPIRED */
+    private static boolean isExpired(Card card, LocalDate today) {
+        return card.getStatus() == Status.EXPIRED || card.getExpirationDate().isBefore(today);
+    }
+
+    /** Учесть отклоненный перевод в метрике cards.transfer.rejections по причине */
+    private IllegalArgumentException rejectTransfer(String reason, String message) {
+        meterRegistry.counter("cards.transfer.rejections", "reason", reason).increment();
+        return new IllegalArgumentException(message);
+    }
+
+    /**
+     * Загрузить карты для изменения: с блокировкой строк в порядке возрастания id или без нее (по версии).
+     * Единый порядок захвата исключает взаимные блокировки между встречными переводами.
+     * Несуществующие карты в результат не попадают.
+     */
+    private Map<Long, Card> loadCardsForUpdate(Collection<Long> cardIds) {
+        Set<Long> orderedIds = new TreeSet<>(cardIds);
+        List<Card> cards = lockingMode == LockingMode.OPTIMISTIC
+                ? cardRepository.findAllByIdIn(orderedIds)
+                : cardRepository.findAllByIdInForUpdate(orderedIds);
+        Map<Long, Card> locked = new HashMap<>();
+        for (Card card : cards) {
+            locked.put(card.getId(), card);
+        }
+        return locked;
     }
 
     /** Удаление карты */
@@ -161,10 +377,11 @@ public class CardService {
     public void deleteCard(Long cardId) {
         Card card = findCardById(cardId);
         cardRepository.delete(card);
+        cardStatistics.cardDeleted(card);
     }
 
     /** Просмотр баланса */
-    @Transactional
+    @Transactional(readOnly = true)
     public BigDecimal checkBalance(Long cardId, Authentication authentication) {
         Card card = findCardById(cardId);
 
@@ -177,4 +394,24 @@ public class CardService {
                     "Вы можете просматривать баланс только своих карт"
             );
     }
+
+    /** Балансы нескольких своих карт: владелец проверяется в том же запросе, что и чтение балансов */
+    @Transactional(readOnly = true)
+    public List<CardBalanceDTO> checkBalances(List<Long> cardIds, Authentication authentication) {
+        if (cardIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one card id is required");
+        }
+        if (cardIds.size() > balanceBatchMaxSize) {
+            throw new IllegalArgumentException("No more than " + balanceBatchMaxSize + " cards per request");
+        }
+        Set<Long> ids = new TreeSet<>(cardIds);
+
+        List<CardBalanceDTO> balances = cardRepository.findBalancesByIdInAndUsername(ids, authentication.getName());
+        if (balances.size() != ids.size()) {
+            throw new IllegalArgumentException(
+                    "Вы можете просматривать баланс только своих карт"
+            );
+        }
+        return balances;
+    }
 }
@@ -0,0 +1,230 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Статистика по картам в памяти: число карт по статусам, суммарный баланс, карты на пользователя,
+ * сроки действия по месяцам. Изменения карт применяются к счетчикам после фиксации транзакции,
+ * поэтому откаты и повторы TransferEngine не учитываются. Изменения в обход CardService
+ * (ручные правки в БД, гонки массовых операций) исправляет периодический пересчет из БД.
+ */
+@Service
+@Slf4j
+public class CardStatistics {
+
+    /** Последняя корзина гистограммы карт на пользователя: "10+" */
+    private static final int MAX_BUCKET = 10;
+
+    private final CardRepository cardRepository;
+
+    private volatile State state = new State();
+    private volatile LocalDateTime rebuiltAt;
+    private volatile long lastRebuildCorrection;
+
+    public CardStatistics(CardRepository cardRepository) {
+        this.cardRepository = cardRepository;
+    }
+
+    /** Счетчики; заменяются целиком при пересчете */
+    private static final class State {
+        private final EnumMap<Status, LongAdder> byStatus = new EnumMap<>(Status.class);
+        private final LongAdder balanceCents = new LongAdder();
+        private final ConcurrentHashMap<Long, Integer> cardsPerUser = new ConcurrentHashMap<>();
+        private final AtomicLongArray usersByCardCount = new AtomicLongArray(MAX_BUCKET + 1);
+        private final ConcurrentHashMap<YearMonth, LongAdder> byExpirationMonth = new ConcurrentHashMap<>();
+
+        private State() {
+            for (Status status : Status.values()) {
+                byStatus.put(status, new LongAdder());
+            }
+        }
+
+        private void addCards(Long userId, Status status, long count, BigDecimal balanceEach, LocalDate expirationDate) {
+            byStatus.get(status).add(count);
+            balanceCents.add(toCents(balanceEach) * count);
+            byExpirationMonth.computeIfAbsent(YearMonth.from(expirationDate), month -> new LongAdder()).add(count);
+            addUserCards(userId, count);
+        }
+
+        /** Изменить число карт пользователя и сдвинуть его между корзинами гистограммы атомарно для этого пользователя */
+        private void addUserCards(Long userId, long delta) {
+            cardsPerUser.compute(userId, (id, current) -> {
+                int before = current != null ? current : 0;
+                int after = (int) Math.max(before + delta, 0);
+                if (before > 0) {
+                    usersByCardCount.decrementAndGet(Math.min(before, MAX_BUCKET));
+                }
+                if (after > 0) {
+                    usersByCardCount.incrementAndGet(Math.min(after, MAX_BUCKET));
+                }
+                return after > 0 ? after : null;
+            });
+        }
+
+        private long totalCards() {
+            long total = 0;
+            for (LongAdder count : byStatus.values()) {
+                total += count.sum();
+            }
+            return total;
+        }
+    }
+
+    /** Учесть новую карту */
+    public void cardCreated(Card card) {
+        Long userId = card.getUser().getId();
+        Status status = card.getStatus();
+        BigDecimal balance = card.getBalance();
+        LocalDate expirationDate = card.getExpirationDate();
+        afterCommit(() -> state.addCards(userId, status, 1, balance, expirationDate));
+    }
+
+    /** Учесть count карт одного пользователя с одинаковыми статусом, балансом и сроком (массовый выпуск) */
+    public void cardsIssued(Long userId, Status status, long count, BigDecimal balanceEach, LocalDate expirationDate) {
+        afterCommit(() -> state.addCards(userId, status, count, balanceEach, expirationDate));
+    }
+
+    /** Учесть удаление карты */
+    public void cardDeleted(Card card) {
+        Long userId = card.getUser().getId();
+        Status status = card.getStatus();
+        BigDecimal balance = card.getBalance();
+        LocalDate expirationDate = card.getExpirationDate();
+        afterCommit(() -> state.addCards(userId, status, -1, balance, expirationDate));
+    }
+
+    /** Учесть смену статуса count карт */
+    public void statusChanged(Status from, Status to, long count) {
+        if (from == to || count == 0) {
+            return;
+        }
+        afterCommit(() -> {
+            State current = state;
+            current.byStatus.get(from).add(-count);
+            current.byStatus.get(to).add(count);
+        });
+    }
+
+    /**
+     * Учесть массовую смену статуса карт ids на to. Вызывается в транзакции до UPDATE:
+     * прежние статусы читаются из БД. Строки, которые UPDATE пропустит из-за параллельного изменения,
+     * исправит пересчет.
+     */
+    public void statusesChanged(Collection<Long> ids, Status to) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (Object[] row : cardRepository.countByStatusForIds(ids)) {
+            statusChanged((Status) row[0], to, (Long) row[1]);
+        }
+    }
+
+    /** Статистика из счетчиков, без обращения к БД */
+    public CardStatsDTO getStats() {
+        State current = state;
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        current.byStatus.forEach((status, count) -> byStatus.put(status.name(), count.sum()));
+
+        Map<String, Long> usersByCardCount = new LinkedHashMap<>();
+        long usersWithCards = 0;
+        for (int bucket = 1; bucket <= MAX_BUCKET; bucket++) {
+            long users = current.usersByCardCount.get(bucket);
+            usersByCardCount.put(bucket == MAX_BUCKET ? MAX_BUCKET + "+" : String.valueOf(bucket), users);
+            usersWithCards += users;
+        }
+
+        long totalCards = current.totalCards();
+        YearMonth nextMonth = YearMonth.now().plusMonths(1);
+        LongAdder expiring = current.byExpirationMonth.get(nextMonth);
+        return new CardStatsDTO(totalCards, byStatus,
+                BigDecimal.valueOf(current.balanceCents.sum(), 2),
+                usersWithCards,
+                usersWithCards > 0 ? (double) totalCards / usersWithCards : 0.0,
+                usersByCardCount,
+                nextMonth,
+                expiring != null ? expiring.sum() : 0,
+                rebuiltAt,
+                lastRebuildCorrection);
+    }
+
+    /** Первый расчет после старта, когда начальные данные уже загружены */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildOnReady() {
+        rebuild();
+    }
+
+    /**
+     * Пересчитать счетчики из БД и заменить ими текущие.
+     * Изменения, зафиксированные во время пересчета, могут потеряться до следующего пересчета.
+     */
+    @Scheduled(fixedDelayString = "${cards.stats.rebuild-delay-ms:600000}",
+            initialDelayString = "${cards.stats.rebuild-delay-ms:600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        State rebuilt = new State();
+        for (Object[] row : cardRepository.sumBalancesByStatus()) {
+            Status status = (Status) row[0];
+            rebuilt.byStatus.get(status).add((Long) row[1]);
+            rebuilt.balanceCents.add(toCents((BigDecimal) row[2]));
+        }
+        try (Stream<Object[]> rows = cardRepository.streamCardCountsByUser()) {
+            rows.forEach(row -> rebuilt.addUserCards((Long) row[0], (Long) row[1]));
+        }
+        for (Object[] row : cardRepository.countByExpirationMonth()) {
+            YearMonth month = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            rebuilt.byExpirationMonth.computeIfAbsent(month, m -> new LongAdder()).add((Long) row[2]);
+        }
+
+        long correction = rebuilt.totalCards() - state.totalCards();
+        state = rebuilt;
+        rebuiltAt = LocalDateTime.now();
+        lastRebuildCorrection = correction;
+        if (correction != 0) {
+            log.warn("Card statistics drifted by {} cards, rebuilt in {} ms", correction, System.currentTimeMillis() - start);
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+}
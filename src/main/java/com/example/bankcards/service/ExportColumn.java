@@ -0,0 +1,27 @@
+package com.example.bankcards.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/** Колонка выгрузки: имя и значение из строки */
+public record ExportColumn<T>(String name, Function<T, Object> value) {
+
+    /** Колонки в запрошенном порядке; без списка - все доступные */
+    public static <T> List<ExportColumn<T>> select(Map<String, Function<T, Object>> available, List<String> requested) {
+        List<ExportColumn<T>> columns = new ArrayList<>();
+        if (requested == null || requested.isEmpty()) {
+            available.forEach((name, value) -> columns.add(new ExportColumn<>(name, value)));
+            return columns;
+        }
+        for (String name : requested) {
+            Function<T, Object> value = available.get(name.trim());
+            if (value == null) {
+                throw new IllegalArgumentException("Unknown column: " + name + ", available: " + available.keySet());
+            }
+            columns.add(new ExportColumn<>(name.trim(), value));
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.bankcards.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Построчная запись выгрузки в NDJSON или CSV с выбранными колонками, при необходимости со сжатием gzip.
+ * Строки копятся в буфере и уходят клиенту после первой строки и затем каждые flushEvery строк:
+ * память не зависит от размера выгрузки, а первый байт не ждет заполнения буфера.
+ * gzip пишется с SYNC_FLUSH, поэтому сброс буфера отправляет и сжатые данные.
+ */
+public class ExportWriter<T> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final GZIPOutputStream gzip;
+    private final List<ExportColumn<T>> columns;
+    private final int flushEvery;
+    private final JsonGenerator json;
+    private final Writer csv;
+    private long count;
+
+    public ExportWriter(OutputStream outputStream, ExportFormat format, List<ExportColumn<T>> columns,
+                        boolean compress, ObjectMapper objectMapper, int flushEvery) throws IOException {
+        this.gzip = compress ? new GZIPOutputStream(outputStream, BUFFER_SIZE, true) : null;
+        this.out = new BufferedOutputStream(compress ? gzip : outputStream, BUFFER_SIZE);
+        this.columns = columns;
+        this.flushEvery = Math.max(flushEvery, 1);
+        if (format == ExportFormat.NDJSON) {
+            this.json = objectMapper.getFactory().createGenerator(out);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.csv = null;
+        } else {
+            this.json = null;
+            this.csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writeCsvRow(columns.stream().map(ExportColumn::name).toList());
+        }
+    }
+
+    /** Записать строку; ошибки записи в ответ - UncheckedIOException */
+    public void write(T row) {
+        try {
+            if (json != null) {
+                json.writeStartObject();
+                for (ExportColumn<T> column : columns) {
+                    json.writeFieldName(column.name());
+                    json.writeObject(column.value().apply(row));
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+            } else {
+                writeCsvRow(columns.stream().map(column -> column.value().apply(row)).toList());
+            }
+            if (++count == 1 || count % flushEvery == 0) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Дописать буферы и завершить gzip; вернуть число строк */
+    public long finish() throws IOException {
+        flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+        out.flush();
+        return count;
+    }
+
+    private void flush() throws IOException {
+        if (json != null) {
+            json.flush();
+        } else {
+            csv.flush();
+        }
+        out.flush();
+    }
+
+    private void writeCsvRow(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                csv.write(',');
+            }
+            csv.write(csvValue(values.get(i)));
+        }
+        csv.write("\r\n");
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text;
+        if (value instanceof Collection<?> collection) {
+            text = collection.stream().map(String::valueOf).sorted().collect(Collectors.joining("|"));
+        } else if (value instanceof BigDecimal decimal) {
+            text = decimal.toPlainString();
+        } else {
+            text = value.toString();
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
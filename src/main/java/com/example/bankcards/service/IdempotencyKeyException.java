@@ -0,0 +1,16 @@
+package com.example.bankcards.service;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/** Запрос с Idempotency-Key нельзя выполнить: ключ занят параллельным запросом или использован с другим телом */
+@Getter
+public class IdempotencyKeyException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public IdempotencyKeyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.IdempotentResponse;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Выполнение запросов с заголовком Idempotency-Key не более одного раза.
+ * Завершенные результаты хранятся в локальном кэше (TTL, ограниченный размер) и в таблице idempotency_keys,
+ * повтор получает сохраненный ответ без обращения к картам. Параллельный повтор на том же экземпляре
+ * отсекается картой выполняющихся ключей, на разных экземплярах - первичным ключом таблицы.
+ * Отклоненные запросы (IllegalArgumentException) не сохраняются: они ничего не изменили, и повтор безопасен.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int PENDING = 0;
+    private static final int OK = HttpStatus.OK.value();
+
+    private final IdempotencyRecordRepository repository;
+    private final TransferEngine transferEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final ConcurrentHashMap<String, Boolean> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              TransferEngine transferEngine,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${cards.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                              @Value("${cards.idempotency.cache.max-size:100000}") long cacheMaxSize) {
+        this.repository = repository;
+        this.transferEngine = transferEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.completed = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(cacheMaxSize)
+                .build();
+    }
+
+    /**
+     * Выполнить работу один раз на ключ; результат записывается в той же транзакции, что и работа.
+     * Для операций, укладывающихся в одну транзакцию (одиночный перевод). Транзакция повторяется
+     * по политике TransferEngine для operation, так что вложенный execute работы не остается без повторов.
+     */
+    public IdempotentResponse executeAtomically(String username, String key, String operation, Object request,
+                                                Supplier<Object> work) {
+        String id = recordId(username, key);
+        String requestHash = requestHash(operation, request);
+
+        IdempotentResponse stored = findStored(id, requestHash);
+        if (stored != null) {
+            return stored;
+        }
+
+        acquire(id);
+        try {
+            IdempotencyRecord record = transferEngine.execute(operation, () -> {
+                repository.releaseExpired(id, LocalDateTime.now());
+                String body = toJson(work.get());
+                return repository.saveAndFlush(newRecord(id, requestHash, OK, body));
+            });
+            completed.put(id, record);
+            return new IdempotentResponse(record.getResponseStatus(), record.getResponseBody(), false);
+        } catch (DataIntegrityViolationException e) {
+            // Ключ зафиксирован параллельным запросом, эта транзакция откатилась вместе с работой
+            return replayWinner(id, requestHash, e);
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    /**
+     * Выполнить работу один раз на ключ; ключ занимается отдельной транзакцией до начала работы.
+     * Для операций из нескольких транзакций (пакетный перевод). Если экземпляр упадет во время работы,
+     * ключ останется занятым до истечения TTL и повтор получит 409, а не выполнится второй раз.
+     */
+    public IdempotentResponse executeClaimed(String username, String key, String operation, Object request,
+                                             Supplier<Object> work) {
+        String id = recordId(username, key);
+        String requestHash = requestHash(operation, request);
+
+        IdempotentResponse stored = findStored(id, requestHash);
+        if (stored != null) {
+            return stored;
+        }
+
+        acquire(id);
+        try {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    repository.releaseExpired(id, LocalDateTime.now());
+                    repository.saveAndFlush(newRecord(id, requestHash, PENDING, null));
+                });
+            } catch (DataIntegrityViolationException e) {
+                return replayWinner(id, requestHash, e);
+            }
+
+            String body;
+            try {
+                body = toJson(work.get());
+            } catch (RuntimeException e) {
+                // Работа не выполнена - ключ освобождается для повтора
+                transactionTemplate.executeWithoutResult(status -> repository.release(id));
+                throw e;
+            }
+            transactionTemplate.executeWithoutResult(status -> repository.complete(id, OK, body));
+
+            IdempotencyRecord record = newRecord(id, requestHash, OK, body);
+            completed.put(id, record);
+            return new IdempotentResponse(OK, body, false);
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    /** Удалить из таблицы записи с истекшим TTL */
+    @Scheduled(fixedDelayString = "${cards.idempotency.purge-delay-ms:600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private IdempotentResponse findStored(String id, String requestHash) {
+        IdempotencyRecord record = completed.getIfPresent(id);
+        if (record == null) {
+            record = repository.findActive(id, LocalDateTime.now()).orElse(null);
+            if (record == null) {
+                return null;
+            }
+            if (record.getResponseStatus() != PENDING) {
+                completed.put(id, record);
+            }
+        }
+        return replay(record, requestHash);
+    }
+
+    private IdempotentResponse replayWinner(String id, String requestHash, DataIntegrityViolationException e) {
+        IdempotencyRecord winner = repository.findActive(id, LocalDateTime.now()).orElseThrow(() -> e);
+        if (winner.getResponseStatus() != PENDING) {
+            completed.put(id, winner);
+        }
+        return replay(winner, requestHash);
+    }
+
+    private IdempotentResponse replay(IdempotencyRecord record, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used with a different request");
+        }
+        if (record.getResponseStatus() == PENDING) {
+            throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still in progress");
+        }
+        return new IdempotentResponse(record.getResponseStatus(), record.getResponseBody(), true);
+    }
+
+    private void acquire(String id) {
+        if (inFlight.putIfAbsent(id, Boolean.TRUE) != null) {
+            throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still in progress");
+        }
+    }
+
+    private IdempotencyRecord newRecord(String id, String requestHash, int status, String body) {
+        LocalDateTime now = LocalDateTime.now();
+        return IdempotencyRecord.builder()
+                .id(id)
+                .requestHash(requestHash)
+                .responseStatus(status)
+                .responseBody(body)
+                .createdAt(now)
+                .expiresAt(now.plus(ttl))
+                .build();
+    }
+
+    private static String recordId(String username, String key) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1.." + MAX_KEY_LENGTH + " characters");
+        }
+        return username + ":" + key;
+    }
+
+    private String requestHash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot hash request", e);
+        }
+    }
+
+    private String toJson(Object result) {
+        if (result == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize response", e);
+        }
+    }
+}
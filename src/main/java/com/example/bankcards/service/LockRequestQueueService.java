@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkStatusResult;
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.LockRequestClaim;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь заявок на блокировку (cards.status = LOCK_REQUEST) для нескольких администраторов.
+ * Администратор забирает порцию заявок: SELECT ... FOR UPDATE SKIP LOCKED по индексу (status, claimed_until)
+ * пропускает строки, которые в тот же момент забирает другой, и заявки закрепляются за ним на время
+ * cards.lock-requests.lease-seconds. Незакрытые заявки после этого снова попадают в очередь.
+ */
+@Service
+public class LockRequestQueueService {
+
+    private final CardRepository cardRepository;
+    private final TransferEngine transferEngine;
+    private final CardStatistics cardStatistics;
+    private final Timer claimTimer;
+    private final Counter approved;
+    private final Counter rejected;
+
+    @Value("${cards.lock-requests.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${cards.lock-requests.max-claim:100}")
+    private int maxClaim;
+
+    public LockRequestQueueService(CardRepository cardRepository, TransferEngine transferEngine,
+                                   CardStatistics cardStatistics, MeterRegistry meterRegistry) {
+        this.cardRepository = cardRepository;
+        this.transferEngine = transferEngine;
+        this.cardStatistics = cardStatistics;
+        this.claimTimer = Timer.builder("cards.lock.requests.claim")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.approved = meterRegistry.counter("cards.lock.requests.decisions", "decision", "approved");
+        this.rejected = meterRegistry.counter("cards.lock.requests.decisions", "decision", "rejected");
+    }
+
+    /** Забрать до limit свободных заявок и закрепить их за worker */
+    public LockRequestClaim claim(String worker, int limit) {
+        int size = Math.min(Math.max(limit, 1), maxClaim);
+        return claimTimer.record(() -> transferEngine.execute("lock-request-claim", () -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime claimedUntil = now.plusSeconds(leaseSeconds);
+            List<Card> cards = cardRepository.findLockRequestsToClaim(now, PageRequest.of(0, size));
+            for (Card card : cards) {
+                card.setClaimedBy(worker);
+                card.setClaimedUntil(claimedUntil);
+            }
+            return new LockRequestClaim(worker, claimedUntil, cards.stream().map(CardDTO::fromEntity).toList());
+        }));
+    }
+
+    /** Одобрить закрепленные за worker заявки: карты блокируются */
+    public BulkStatusResult approve(List<Long> ids, String worker) {
+        return resolve(ids, worker, Status.BLOCKED, approved);
+    }
+
+    /** Отклонить закрепленные за worker заявки: карты снова активны */
+    public BulkStatusResult reject(List<Long> ids, String worker) {
+        return resolve(ids, worker, Status.ACTIVE, rejected);
+    }
+
+    /** Глубина очереди, закрепленные заявки и время взятия порции */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStats() {
+        long depth = cardRepository.countByStatus(Status.LOCK_REQUEST);
+        long claimed = cardRepository.countClaimedLockRequests(LocalDateTime.now());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("depth", depth);
+        stats.put("claimed", claimed);
+        stats.put("available", depth - claimed);
+        stats.put("claims", claimTimer.count());
+        stats.put("claimLatencyMeanMs", claimTimer.mean(TimeUnit.MILLISECONDS));
+        stats.put("claimLatencyMaxMs", claimTimer.max(TimeUnit.MILLISECONDS));
+        stats.put("approved", (long) approved.count());
+        stats.put("rejected", (long) rejected.count());
+        return stats;
+    }
+
+    private BulkStatusResult resolve(List<Long> ids, String worker, Status target, Counter decisions) {
+        int updated = transferEngine.execute("lock-request-decision", () -> {
+            int resolved = cardRepository.resolveLockRequests(ids, worker, target, LocalDate.now());
+            cardStatistics.statusChanged(Status.LOCK_REQUEST, target, resolved);
+            return resolved;
+        });
+        decisions.increment(updated);
+        return new BulkStatusResult(target.name(), updated, 1);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.bankcards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет изменения карт в отдельной транзакции с повтором при конфликте.
+ * В пессимистичном режиме карты блокируются в порядке возрастания id (см. {@link CardService#loadCardsForUpdate}),
+ * поэтому встречные переводы A→B и B→A не образуют цикл ожидания. Оставшиеся дедлоки, таймауты
+ * блокировок и конфликты версий (@Version на Card) повторяются с экспоненциальной задержкой.
+ * Число попыток и задержки задаются для каждой операции: cards.retry.&lt;операция&gt;.max-attempts,
+ * backoff-ms, max-backoff-ms; без них действуют общие cards.transfer.*.
+ */
+@Component
+public class TransferEngine {
+
+    /** Параметры повтора одной операции */
+    public record RetryPolicy(int maxAttempts, long backoffMs, long maxBackoffMs) {
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final Environment environment;
+    private final ConcurrentHashMap<String, RetryPolicy> policies = new ConcurrentHashMap<>();
+
+    @Value("${cards.transfer.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${cards.transfer.backoff-ms:10}")
+    private long backoffMs;
+
+    @Value("${cards.transfer.max-backoff-ms:200}")
+    private long maxBackoffMs;
+
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder lockFailures = new LongAdder();
+    private final LongAdder versionConflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder backoffNanos = new LongAdder();
+
+    public TransferEngine(PlatformTransactionManager transactionManager, Environment environment) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.environment = environment;
+    }
+
+    /**
+     * Выполнить работу в новой транзакции, повторяя ее при дедлоке, таймауте блокировки или конфликте версий.
+     * Если транзакция уже открыта вызывающим кодом, повтор невозможен и работа выполняется один раз.
+     */
+    public <T> T execute(String operation, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+
+        RetryPolicy policy = policyFor(operation);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transactionTemplate.execute(status -> work.get());
+                transactions.increment();
+                return result;
+            } catch (ConcurrencyFailureException e) {
+                if (e instanceof OptimisticLockingFailureException) {
+                    versionConflicts.increment();
+                } else {
+                    lockFailures.increment();
+                }
+                if (attempt >= policy.maxAttempts()) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                backoff(policy, attempt);
+            }
+        }
+    }
+
+    /** Политика повторов операции с учетом переопределений cards.retry.&lt;операция&gt;.* */
+    public RetryPolicy policyFor(String operation) {
+        return policies.computeIfAbsent(operation, op -> new RetryPolicy(
+                environment.getProperty("cards.retry." + op + ".max-attempts", Integer.class, maxAttempts),
+                environment.getProperty("cards.retry." + op + ".backoff-ms", Long.class, backoffMs),
+                environment.getProperty("cards.retry." + op + ".max-backoff-ms", Long.class, maxBackoffMs)));
+    }
+
+    public long getTransactions() {
+        return transactions.sum();
+    }
+
+    public long getLockFailures() {
+        return lockFailures.sum();
+    }
+
+    public long getVersionConflicts() {
+        return versionConflicts.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    public long getBackoffMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(backoffNanos.sum());
+    }
+
+    /** Экспоненциальная задержка со случайным разбросом, чтобы конкуренты не повторяли одновременно */
+    private void backoff(RetryPolicy policy, int attempt) {
+        long ceiling = Math.min(policy.maxBackoffMs(), policy.backoffMs() << Math.min(attempt - 1, 16));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Transfer retry interrupted", e);
+        } finally {
+            backoffNanos.add(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.UserDTO;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка пользователей построчно в NDJSON или CSV.
+ * Пользователи с ролями читаются одним запросом курсором БД; строки одного пользователя идут подряд
+ * и собираются в одну строку выгрузки, так что в памяти находится только текущий пользователь.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserExportService {
+
+    private static final Map<String, Function<UserDTO, Object>> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("id", UserDTO::getId);
+        COLUMNS.put("username", UserDTO::getUsername);
+        COLUMNS.put("roles", UserDTO::getRoles);
+    }
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${cards.export.flush-every:5000}")
+    private int flushEvery;
+
+    public List<ExportColumn<UserDTO>> columns(List<String> names) {
+        return ExportColumn.select(COLUMNS, names);
+    }
+
+    /** Записать всех пользователей в поток, по строке на пользователя */
+    @Transactional(readOnly = true)
+    public long exportUsers(OutputStream outputStream, ExportFormat format, List<ExportColumn<UserDTO>> columns,
+                            boolean gzip) throws IOException {
+        ExportWriter<UserDTO> writer = new ExportWriter<>(outputStream, format, columns, gzip, objectMapper, flushEvery);
+        try (Stream<Object[]> rows = userRepository.streamAllWithRoles()) {
+            UserDTO current = null;
+            for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); ) {
+                Object[] row = it.next();
+                Long id = (Long) row[0];
+                if (current == null || !current.getId().equals(id)) {
+                    if (current != null) {
+                        writer.write(current);
+                    }
+                    current = new UserDTO(id, (String) row[1], EnumSet.noneOf(Role.class));
+                }
+                if (row[2] != null) {
+                    current.getRoles().add((Role) row[2]);
+                }
+            }
+            if (current != null) {
+                writer.write(current);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.finish();
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CursorPage;
 import com.example.bankcards.dto.UserDTO;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.Role;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenVersionRegistry;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,10 +19,14 @@ import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "cards.service", extraTags = {"service", "user"}, histogram = true)
 public class UserService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
+    private final TokenVersionRegistry tokenVersions;
 
     /**
      * Регистрация нового пользователя
@@ -54,6 +62,21 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Keyset-страница пользователей
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserDTO> getUsersPage(Long cursor, int size) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<UserDTO> users = userRepository
+                .findAllByIdGreaterThanOrderByIdAsc(cursor != null ? cursor : 0L, PageRequest.of(0, limit))
+                .stream()
+                .map(UserDTO::fromEntity)
+                .collect(Collectors.toList());
+        String nextCursor = users.size() == limit ? String.valueOf(users.get(limit - 1).getId()) : null;
+        return new CursorPage<>(users, nextCursor);
+    }
+
     /**
      * Изменить роль пользователя (например ADMIN может менять роли)
      */
@@ -63,6 +86,7 @@ public class UserService {
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
         user.getRoles().clear();
         user.getRoles().add(newRole);
+        tokenVersions.revoke(user);
         return UserDTO.fromEntity(userRepository.save(user));
     }
 
@@ -80,6 +104,7 @@ public class UserService {
     public void deleteUser(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        tokenVersions.revoke(user);
         userRepository.delete(user);
     }
 }
@@ -0,0 +1,35 @@
+package com.example.bankcards.util;
+
+/** Контрольная цифра номера карты по алгоритму Луна */
+public final class Luhn {
+
+    private Luhn() {
+    }
+
+    /** Контрольная цифра для номера без нее */
+    public static int checkDigit(CharSequence payload) {
+        int sum = 0;
+        // Удваивается каждая вторая цифра справа, начиная с последней цифры payload
+        boolean doubled = true;
+        for (int i = payload.length() - 1; i >= 0; i--) {
+            int digit = payload.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /** Последняя цифра номера совпадает с контрольной цифрой остальных */
+    public static boolean isValid(String number) {
+        if (number == null || number.length() < 2 || !number.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        return checkDigit(number.substring(0, number.length() - 1)) == number.charAt(number.length() - 1) - '0';
+    }
+}
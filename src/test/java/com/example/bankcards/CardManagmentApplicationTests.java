@@ -2,8 +2,10 @@ package com.example.bankcards;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+@SpringBootTest(properties = "cards.seed.users=10")
+@ActiveProfiles("h2")
 class CardManagmentApplicationTests {
 
 	@Test
@@ -0,0 +1,191 @@
+package com.example.bankcards;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtFilter;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.TokenVersionRegistry;
+import com.example.bankcards.service.CustomUserDetailsService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что наш стек не "прикалывает" виртуальный поток к несущему потоку
+ * (блокировка внутри synchronized). Нагрузка на виртуальных потоках проходит через JwtFilter,
+ * Hibernate, пул Hikari и блокировки строк, а JFR фиксирует события jdk.VirtualThreadPinned.
+ * Нагрузка идет только на встроенную H2: пиннинг внутри ее кода не считается ошибкой, а число таких
+ * событий выводится в лог теста. Драйвер MySQL этим тестом не проверяется.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pinning;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-init-sql=SET LOCK_TIMEOUT 3000",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Миграции рассчитаны на MySQL-совместимую БД, срез JPA строит схему сам
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Slf4j
+class VirtualThreadPinningTest {
+
+    private static final int TASKS = 200;
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void requestPathDoesNotPinCarrierThreads() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Long> cardIds = tx.execute(status -> seed());
+        Long userId = tx.execute(status -> userRepository.findByUsername("pinning-user").orElseThrow().getId());
+
+        TokenVersionRegistry tokenVersions = new TokenVersionRegistry(userRepository, 60, 100);
+        JwtUtil jwtUtil = new JwtUtil(tokenVersions);
+        ReflectionTestUtils.setField(jwtUtil, "secret", "nfgQmmIhJzNDmTKydf3YQ1mAUgoyDzASxbkryvPcCoc=");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheMaxSize", 100);
+        jwtUtil.init();
+        String token = jwtUtil.generateToken(new HashMap<>(), "pinning-user", List.of("ROLE_USER"));
+
+        JwtFilter statelessFilter = new JwtFilter(jwtUtil, new CustomUserDetailsService(userRepository), tokenVersions,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(statelessFilter, "stateless", true);
+        JwtFilter databaseFilter = new JwtFilter(jwtUtil, new CustomUserDetailsService(userRepository), tokenVersions,
+                new SimpleMeterRegistry());
+
+        ConcurrentLinkedQueue<RecordedEvent> pinned = new ConcurrentLinkedQueue<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent(PINNED_EVENT, pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < TASKS; i++) {
+                    JwtFilter filter = i % 2 == 0 ? statelessFilter : databaseFilter;
+                    futures.add(executor.submit(() -> {
+                        authenticate(filter, token);
+                        tx.executeWithoutResult(status -> {
+                            for (Card card : cardRepository.findAllByIdInForUpdate(cardIds)) {
+                                card.setBalance(card.getBalance().add(BigDecimal.ONE));
+                            }
+                        });
+                        cardRepository.findDtosByUserId(userId);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            recording.stop();
+        }
+
+        List<String> offending = new ArrayList<>();
+        int ignored = 0;
+        for (RecordedEvent event : pinned) {
+            String origin = blockingOrigin(event);
+            if (origin.startsWith("org.h2.")) {
+                ignored++;
+            } else {
+                offending.add(origin);
+            }
+        }
+        log.info("Pinned events inside the H2 test database: {}", ignored);
+        assertTrue(offending.isEmpty(),
+                "Carrier thread pinned at: " + offending + " (plus " + ignored + " inside the H2 test database)");
+    }
+
+    private void authenticate(JwtFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards/userCards/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            assertTrue(SecurityContextHolder.getContext().getAuthentication() != null);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /** Первый кадр вне JDK: код, который заблокировался, удерживая монитор */
+    private static String blockingOrigin(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "<no stack trace>";
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return "<jdk>";
+    }
+
+    private List<Long> seed() {
+        User user = userRepository.save(User.builder()
+                .username("pinning-user")
+                .password("secret")
+                .roles(Set.of(Role.ROLE_USER))
+                .build());
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ids.add(cardRepository.save(Card.builder()
+                    .number(String.format("4100%012d", i))
+                    .expirationDate(LocalDate.now().plusYears(3))
+                    .status(Status.ACTIVE)
+                    .balance(BigDecimal.ZERO)
+                    .owner(user.getUsername())
+                    .user(user)
+                    .build()).getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.Status;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнение аллокаций на один запрос "все карты пользователя":
+ * загрузка сущностей с ручным копированием в DTO против проекции в CardDTO.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Миграции рассчитаны на MySQL-совместимую БД, срез JPA строит схему сам
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class CardProjectionAllocationTest {
+
+    private static final int CARDS = 50;
+    private static final int WARMUP = 300;
+    private static final int ITERATIONS = 1000;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void projectionAllocatesLessThanEntityHydration() {
+        Long userId = seed();
+
+        TransactionTemplate writeTx = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        Supplier<List<CardDTO>> entityPath = () -> writeTx.execute(status -> cardRepository.findAllByUserId(userId)
+                .stream()
+                .map(CardDTO::fromEntity)
+                .collect(Collectors.toList()));
+        Supplier<List<CardDTO>> projectionPath = () -> readOnlyTx.execute(status -> cardRepository.findDtosByUserId(userId));
+
+        assertEquals(CARDS, entityPath.get().size());
+        assertEquals(CARDS, projectionPath.get().size());
+        assertEquals(entityPath.get().get(0).getNumber(), projectionPath.get().get(0).getNumber());
+
+        long entityBytes = bytesPerCall(entityPath);
+        long projectionBytes = bytesPerCall(projectionPath);
+        assertTrue(projectionBytes < entityBytes,
+                "projection " + projectionBytes + " bytes, entities " + entityBytes + " bytes");
+    }
+
+    private long bytesPerCall(Supplier<List<CardDTO>> path) {
+        for (int i = 0; i < WARMUP; i++) {
+            path.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            path.get();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / ITERATIONS;
+    }
+
+    private Long seed() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            User user = userRepository.save(User.builder()
+                    .username("projection-user")
+                    .password("secret")
+                    .roles(Set.of(Role.ROLE_USER))
+                    .build());
+            for (int i = 0; i < CARDS; i++) {
+                entityManager.persist(Card.builder()
+                        .number(String.format("4000%012d", i))
+                        .expirationDate(LocalDate.now().plusYears(3))
+                        .status(Status.ACTIVE)
+                        .balance(BigDecimal.valueOf(100))
+                        .owner(user.getUsername())
+                        .user(user)
+                        .build());
+            }
+            return user.getId();
+        });
+    }
+}
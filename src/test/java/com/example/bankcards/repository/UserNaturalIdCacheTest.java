@@ -0,0 +1,87 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.config.HibernateCacheConfig;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(HibernateCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Миграции рассчитаны на MySQL-совместимую БД, срез JPA строит схему сам
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "cards.cache.statistics=true"
+})
+class UserNaturalIdCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void repeatedLookupByUsernameIsServedFromCache() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> userRepository.save(User.builder()
+                .username("cached-user")
+                .password("secret")
+                .roles(new HashSet<>(Set.of(Role.ROLE_USER)))
+                .build()));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        userRepository.findByNaturalUsername("cached-user").orElseThrow();
+        long queriesAfterFirst = statistics.getPrepareStatementCount();
+        User user = userRepository.findByNaturalUsername("cached-user").orElseThrow();
+
+        assertEquals(queriesAfterFirst, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+        assertEquals("cached-user", user.getUsername());
+    }
+
+    @Test
+    void roleChangeInvalidatesCachedRoles() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long id = tx.execute(status -> userRepository.save(User.builder()
+                .username("role-user")
+                .password("secret")
+                .roles(new HashSet<>(Set.of(Role.ROLE_USER)))
+                .build()).getId());
+        tx.executeWithoutResult(status -> userRepository.findByNaturalUsername("role-user").orElseThrow().getRoles().size());
+
+        tx.executeWithoutResult(status -> {
+            User user = userRepository.findById(id).orElseThrow();
+            user.getRoles().clear();
+            user.getRoles().add(Role.ROLE_ADMIN);
+        });
+
+        Set<Role> roles = tx.execute(status ->
+                new HashSet<>(userRepository.findByNaturalUsername("role-user").orElseThrow().getRoles()));
+        assertEquals(Set.of(Role.ROLE_ADMIN), roles);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:actuator_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "cards.seed.users=1"
+})
+@ActiveProfiles("h2")
+// В тестах экспорт метрик по умолчанию выключен, без него /actuator/prometheus не регистрируется
+@AutoConfigureObservability
+class ActuatorSecurityTest {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int serverPort;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    void prometheusIsOpenOnlyOnManagementPort() throws Exception {
+        assertNotEquals(serverPort, managementPort);
+        assertEquals(200, get(managementPort, "/actuator/prometheus"));
+        assertEquals(200, get(managementPort, "/actuator/health"));
+        int status = get(serverPort, "/actuator/prometheus");
+        assertTrue(status == 401 || status == 403, "Prometheus answered " + status + " on the application port");
+    }
+
+    private int get(int port, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
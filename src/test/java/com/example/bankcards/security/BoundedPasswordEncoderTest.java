@@ -0,0 +1,46 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void encodesAndMatchesThroughExecutor() {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(), 2, 4, 5000)) {
+            String hash = encoder.encode("secret");
+            assertTrue(encoder.matches("secret", hash));
+            assertFalse(encoder.matches("other", hash));
+        }
+    }
+
+    @Test
+    void rejectsFastWhenQueueIsFull() throws InterruptedException {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(), 1, 1, 10_000)) {
+            String hash = new BCryptPasswordEncoder().encode("secret");
+            AtomicInteger rejected = new AtomicInteger();
+            ExecutorService clients = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 8; i++) {
+                clients.submit(() -> {
+                    try {
+                        encoder.matches("secret", hash);
+                    } catch (PasswordHashingRejectedException e) {
+                        rejected.incrementAndGet();
+                    }
+                });
+            }
+            clients.shutdown();
+            assertTrue(clients.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertTrue(rejected.get() > 0);
+            assertEquals(rejected.get(), encoder.getRejectedCount());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkhead_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "cards.seed.users=1"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class BulkheadFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BulkheadFilter bulkheadFilter;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Test
+    void exportHoldsPermitUntilResponseCompletes() throws Exception {
+        String token = jwtUtil.generateToken(new HashMap<>(), "admin", List.of("ROLE_ADMIN"));
+
+        MvcResult result = mockMvc.perform(get("/api/cards/export")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Первая обработка завершена, выгрузка идет в потоке async-исполнителя
+        assertEquals(1L, cardReadsInUse());
+
+        // Повторная диспетчеризация после выгрузки завершает асинхронный ответ
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        assertEquals(0L, cardReadsInUse());
+    }
+
+    private long cardReadsInUse() {
+        return bulkheadFilter.getStats().get(BulkheadFilter.EndpointClass.CARD_READS.name()).get("inUse");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtUtilTest {
+
+    private JwtUtil jwtUtil;
+    private TokenVersionRegistry tokenVersions;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findTokenVersionByUsername(anyString())).thenReturn(Optional.of(0));
+        tokenVersions = new TokenVersionRegistry(userRepository, 60, 100);
+        jwtUtil = new JwtUtil(tokenVersions);
+        ReflectionTestUtils.setField(jwtUtil, "secret", "nfgQmmIhJzNDmTKydf3YQ1mAUgoyDzASxbkryvPcCoc=");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheMaxSize", 4);
+        jwtUtil.init();
+    }
+
+    @Test
+    void repeatedTokenIsServedFromCache() {
+        String token = jwtUtil.generateToken(new HashMap<>(), "user", List.of("ROLE_USER"));
+
+        TokenClaims first = jwtUtil.verify(token);
+        TokenClaims second = jwtUtil.verify(token);
+
+        assertSame(first, second);
+        assertThrows(UnsupportedOperationException.class, () -> first.roles().add("ROLE_ADMIN"));
+        assertEquals("user", jwtUtil.extractUsername(token));
+        assertEquals(List.of("ROLE_USER"), jwtUtil.extractRoles(token));
+        assertEquals(1, jwtUtil.getClaimsCacheMisses());
+        assertEquals(3, jwtUtil.getClaimsCacheHits());
+    }
+
+    @Test
+    void cacheSizeIsBounded() {
+        for (int i = 0; i < 20; i++) {
+            jwtUtil.verify(jwtUtil.generateToken(new HashMap<>(), "user" + i, List.of("ROLE_USER")));
+        }
+        // Вытеснение Caffeine выполняется асинхронно, дожидаемся его перед проверкой размера
+        ((Cache<?, ?>) ReflectionTestUtils.getField(jwtUtil, "claimsCache")).cleanUp();
+        assertTrue(jwtUtil.getClaimsCacheSize() <= 4);
+    }
+
+    @Test
+    void revokedVersionIsNotCurrent() {
+        String token = jwtUtil.generateToken(new HashMap<>(), "user", List.of("ROLE_USER"));
+        Integer version = jwtUtil.verify(token).version();
+        assertTrue(tokenVersions.isCurrent("user", version));
+
+        User user = User.builder().username("user").tokenVersion(version).build();
+        tokenVersions.revoke(user);
+        assertEquals(version + 1, user.getTokenVersion());
+        when(userRepository.findTokenVersionByUsername("user")).thenReturn(Optional.of(user.getTokenVersion()));
+
+        assertFalse(tokenVersions.isCurrent("user", version));
+        assertTrue(tokenVersions.isCurrent("user", user.getTokenVersion()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.bankcards.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    /** Вход: 3 запроса с IP и 2 на имя, регистрация: 1 с IP, переводы: 100 на пользователя; токен в минуту */
+    private final RateLimitFilter filter = new RateLimitFilter(new ObjectMapper(), true, 1000,
+            3, 1, 2, 1, 1, 1, 100, 1);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void rejectsBurstFromOneIpWithRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, authenticate("10.0.0.1", "user" + i).getStatus());
+        }
+        MockHttpServletResponse rejected = authenticate("10.0.0.1", "user9");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("60", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(200, authenticate("10.0.0.2", "user9").getStatus());
+
+        assertEquals(200, register("10.0.0.3").getStatus());
+        assertEquals(429, register("10.0.0.3").getStatus());
+        assertEquals(1L, filter.getStats().get("REGISTER").get("rejected"));
+    }
+
+    @Test
+    void limitsUsernameAcrossIpsAndPassesBodyThrough() throws Exception {
+        MockHttpServletRequest request = authenticateRequest("10.1.0.1", "victim");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        String body = new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals("{\"username\":\"victim\",\"password\":\"secret\"}", body);
+
+        assertEquals(200, authenticate("10.1.0.2", "victim").getStatus());
+        assertEquals(429, authenticate("10.1.0.3", "victim").getStatus());
+    }
+
+    @Test
+    void concurrentTransfersOfOneUserNeverExceedCapacity() throws Exception {
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+        for (int t = 0; t < 16; t++) {
+            clients.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken("user1", null, List.of()));
+                for (int i = 0; i < 50; i++) {
+                    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/cards/transfer");
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    filter.doFilter(request, response, new MockFilterChain());
+                    if (response.getStatus() == 200) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(100, allowed.get());
+        assertEquals(700L, filter.getStats().get("TRANSFERS").get("rejected"));
+    }
+
+    private MockHttpServletResponse authenticate(String ip, String username) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(authenticateRequest(ip, username), response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletResponse register(String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/register");
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest authenticateRequest(String ip, String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/authenticate");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(("{\"username\":\"" + username + "\",\"password\":\"secret\"}").getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkStatusResult;
+import com.example.bankcards.dto.CardStatusFilter;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk_status_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "cards.seed.users=10"
+})
+@ActiveProfiles("h2")
+class CardBulkStatusTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void blocksAndActivatesByFilterAndEvictsCachedCards() {
+        User user = userRepository.findByNaturalUsername("user5").orElseThrow();
+        Card expired = cardRepository.save(Card.builder()
+                .number("4200000000000001")
+                .expirationDate(LocalDate.now().minusDays(1))
+                .status(Status.ACTIVE)
+                .balance(BigDecimal.TEN)
+                .owner(user.getUsername())
+                .user(user)
+                .build());
+        List<Long> cardIds = cardRepository.findAllByUserId(user.getId()).stream().map(Card::getId).toList();
+        // Карты попадают в кэш второго уровня со статусом ACTIVE
+        cardIds.forEach(id -> assertEquals(Status.ACTIVE, cardRepository.findById(id).orElseThrow().getStatus()));
+
+        CardStatusFilter byOwner = new CardStatusFilter();
+        byOwner.setUserId(user.getId());
+        BulkStatusResult blocked = cardService.bulkUpdateStatus(byOwner, Status.BLOCKED);
+        assertEquals(3, blocked.getUpdated());
+        cardIds.forEach(id -> assertEquals(Status.BLOCKED, cardRepository.findById(id).orElseThrow().getStatus()));
+
+        CardStatusFilter blockedOfOwner = new CardStatusFilter();
+        blockedOfOwner.setUserId(user.getId());
+        blockedOfOwner.setStatus(Status.BLOCKED);
+        assertEquals(2, cardService.bulkUpdateStatus(blockedOfOwner, Status.ACTIVE).getUpdated());
+        assertEquals(Status.BLOCKED, cardRepository.findById(expired.getId()).orElseThrow().getStatus());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.bulkUpdateStatus(new CardStatusFilter(), Status.BLOCKED));
+    }
+}
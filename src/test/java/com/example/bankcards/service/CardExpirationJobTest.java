@@ -0,0 +1,100 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Отдельная БД: контекст с другими свойствами не должен делить последовательности id с остальными тестами
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:expiration_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "cards.seed.users=10",
+        "cards.expiration.enabled=false",
+        "cards.expiration.segments=3"
+})
+@ActiveProfiles("h2")
+class CardExpirationJobTest {
+
+    @Autowired
+    private CardExpirationJob cardExpirationJob;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void expiredCardsAreMarkedOncePerRunAndRejectTransfers() {
+        LocalDate today = LocalDate.now();
+        Card expired = saveCard("4100000000000001", today.minusDays(1));
+        Card valid = saveCard("4100000000000002", today);
+        // Карта попадает в кэш второго уровня со статусом ACTIVE
+        assertEquals(Status.ACTIVE, cardRepository.findById(expired.getId()).orElseThrow().getStatus());
+
+        assertEquals(1, cardExpirationJob.run(today));
+
+        assertEquals(Status.EXPIRED, cardRepository.findById(expired.getId()).orElseThrow().getStatus());
+        assertEquals(Status.ACTIVE, cardRepository.findById(valid.getId()).orElseThrow().getStatus());
+        assertTrue(cardExpirationJob.getSegments().stream().allMatch(segment -> segment.isCompleted()));
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> cardService.transfer(expired.getId(), valid.getId(), BigDecimal.ONE));
+        assertEquals("Card is expired", rejected.getMessage());
+
+        // Запуск того же дня уже завершен, следующий день строит сегменты заново
+        assertEquals(0, cardExpirationJob.run(today));
+        assertEquals(1, cardExpirationJob.run(today.plusDays(1)));
+        assertEquals(Status.EXPIRED, cardRepository.findById(valid.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void concurrentRunsOfTheSameDayExpireEachCardOnce() throws Exception {
+        LocalDate day = LocalDate.now().plusYears(20);
+        for (int i = 0; i < 5; i++) {
+            saveCard("41000000000001" + i + "0", day.minusDays(1));
+        }
+        long due = cardRepository.findAll().stream()
+                .filter(card -> card.getStatus() != Status.EXPIRED && card.getExpirationDate().isBefore(day))
+                .count();
+
+        // Два вызова run имитируют два экземпляра, запустивших задачу одновременно
+        long total;
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<Long> first = executor.submit(() -> cardExpirationJob.run(day));
+            Future<Long> second = executor.submit(() -> cardExpirationJob.run(day));
+            total = first.get() + second.get();
+        }
+
+        assertEquals(due, total);
+        assertTrue(cardExpirationJob.getSegments().stream()
+                .allMatch(segment -> segment.getRunDate().equals(day) && segment.isCompleted()));
+    }
+
+    private Card saveCard(String number, LocalDate expirationDate) {
+        User user = userRepository.findByNaturalUsername("user3").orElseThrow();
+        return cardRepository.save(Card.builder()
+                .number(number)
+                .expirationDate(expirationDate)
+                .status(Status.ACTIVE)
+                .balance(BigDecimal.TEN)
+                .owner(user.getUsername())
+                .user(user)
+                .build());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardIssueRequest;
+import com.example.bankcards.dto.CardIssueStatus;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.Luhn;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:issuance_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "cards.seed.users=10",
+        "cards.issuance.chunk-size=300"
+})
+@ActiveProfiles("h2")
+class CardIssuanceServiceTest {
+
+    @Autowired
+    private CardIssuanceService cardIssuanceService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void luhnCheckDigit() {
+        assertEquals(6, Luhn.checkDigit("453957876362148"));
+        assertTrue(Luhn.isValid("4539578763621486"));
+        assertFalse(Luhn.isValid("4539578763621487"));
+    }
+
+    @Test
+    void issuesLuhnValidCardsFromConsecutiveRanges() throws InterruptedException {
+        User user = userRepository.findByNaturalUsername("user4").orElseThrow();
+
+        CardIssueStatus first = awaitCompletion(cardIssuanceService.submit(request(user.getId(), 1000)));
+        CardIssueStatus second = awaitCompletion(cardIssuanceService.submit(request(user.getId(), 10)));
+
+        assertEquals(1000, first.getIssued());
+        assertEquals(10, second.getIssued());
+        List<Card> issued = cardRepository.findAllByUserId(user.getId()).stream()
+                .filter(card -> card.getNumber().startsWith("990001"))
+                .toList();
+        assertEquals(1010, issued.size());
+        assertTrue(issued.stream().allMatch(card -> Luhn.isValid(card.getNumber())
+                && card.getNumberHash() != null
+                && card.getLast4().equals(card.getNumber().substring(12))));
+        Set<String> numbers = issued.stream().map(Card::getNumber).collect(Collectors.toSet());
+        assertEquals(1010, numbers.size());
+        // Вторая задача продолжает диапазон BIN с порядкового номера 1000
+        assertTrue(numbers.contains("990001000001000" + Luhn.checkDigit("990001000001000")));
+    }
+
+    private static CardIssueRequest request(Long userId, int count) {
+        CardIssueRequest request = new CardIssueRequest();
+        request.setUserId(userId);
+        request.setCount(count);
+        request.setBalance(BigDecimal.TEN);
+        request.setBin("990001");
+        return request;
+    }
+
+    private CardIssueStatus awaitCompletion(CardIssueStatus submitted) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            CardIssueStatus status = cardIssuanceService.getStatus(submitted.getJobId());
+            if (status.getState() == CardIssueStatus.State.COMPLETED) {
+                return status;
+            }
+            assertNotEquals(CardIssueStatus.State.FAILED, status.getState(), status.getError());
+            Thread.sleep(50);
+        }
+        fail("Issue job did not complete");
+        return null;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BalanceRebuildDTO;
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:journal_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "cards.seed.users=10",
+        "cards.journal.snapshot-threshold=3",
+        "cards.journal.snapshot-delay-ms=3600000",
+        "cards.journal.backfill.enabled=false"
+})
+@ActiveProfiles("h2")
+class CardJournalServiceTest {
+
+    @Autowired
+    private CardJournalService journalService;
+
+    @Autowired
+    private CardJournalBackfill journalBackfill;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void snapshotIsTakenByCounterAndRebuildUsesCardSequence() {
+        User user = userRepository.findByNaturalUsername("user4").orElseThrow();
+        Long from = createCard(user, "4700000000000001", new BigDecimal("100.00"));
+        Long to = createCard(user, "4700000000000002", BigDecimal.ZERO);
+
+        for (int i = 0; i < 3; i++) {
+            cardService.transfer(from, to, BigDecimal.TEN);
+        }
+        Card card = cardRepository.findById(from).orElseThrow();
+        assertEquals(3, card.getJournalSeq());
+        assertEquals(3, card.getJournalPending());
+
+        BalanceRebuildDTO beforeSnapshot = journalService.rebuildBalance(from);
+        assertNull(beforeSnapshot.getSnapshotSeq());
+        assertEquals(4, beforeSnapshot.getReplayedEntries());
+        assertEquals(0, new BigDecimal("70.00").compareTo(beforeSnapshot.getRebuiltBalance()));
+
+        journalService.createDueSnapshots();
+        assertEquals(0, cardRepository.findById(from).orElseThrow().getJournalPending());
+        BalanceRebuildDTO afterSnapshot = journalService.rebuildBalance(from);
+        assertEquals(3L, afterSnapshot.getSnapshotSeq());
+        assertEquals(0, afterSnapshot.getReplayedEntries());
+        assertEquals(0, afterSnapshot.getStoredBalance().compareTo(afterSnapshot.getRebuiltBalance()));
+
+        cardService.transfer(from, to, BigDecimal.TEN);
+        BalanceRebuildDTO tail = journalService.rebuildBalance(from);
+        assertEquals(1, tail.getReplayedEntries());
+        assertEquals(0, new BigDecimal("60.00").compareTo(tail.getRebuiltBalance()));
+    }
+
+    @Test
+    void legacyCardJournalIsOpenedWithoutCountingLaterTransfers() {
+        User user = userRepository.findByNaturalUsername("user5").orElseThrow();
+        // Карта без записи OPENING, как созданная до появления журнала
+        Long legacy = cardRepository.save(Card.builder()
+                .number("4700000000000003")
+                .expirationDate(LocalDate.now().plusYears(1))
+                .status(Status.ACTIVE)
+                .balance(new BigDecimal("50.00"))
+                .owner(user.getUsername())
+                .user(user)
+                .build()).getId();
+        Long other = createCard(user, "4700000000000004", BigDecimal.ZERO);
+
+        assertThrows(IllegalArgumentException.class, () -> journalService.rebuildBalance(legacy));
+
+        // Перевод до заполнения: OPENING не должен учесть его второй раз
+        cardService.transfer(legacy, other, new BigDecimal("20.00"));
+        assertTrue(journalBackfill.run() >= 1);
+        assertEquals(0, journalBackfill.run());
+
+        BalanceRebuildDTO rebuilt = journalService.rebuildBalance(legacy);
+        assertEquals(2, rebuilt.getReplayedEntries());
+        assertEquals(0, new BigDecimal("30.00").compareTo(rebuilt.getStoredBalance()));
+        assertEquals(0, rebuilt.getStoredBalance().compareTo(rebuilt.getRebuiltBalance()));
+    }
+
+    private Long createCard(User user, String number, BigDecimal balance) {
+        CardDTO request = new CardDTO();
+        request.setNumber(number);
+        request.setUserId(user.getId());
+        request.setBalance(balance);
+        return cardService.createCard(request).getId();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "cards.seed.users=10")
+@ActiveProfiles("h2")
+class CardNumberLookupTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardNumberBackfill cardNumberBackfill;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void seededCardIsFoundByNumber() {
+        CardDTO card = cardService.findCardByNumber("4000000000000003");
+        assertEquals("**** **** **** 0003", card.getNumber());
+        assertEquals("user1", card.getOwnerUsername());
+    }
+
+    @Test
+    void legacyCardIsFoundAfterBackfill() {
+        User user = userRepository.findByNaturalUsername("user2").orElseThrow();
+        Card legacy = cardRepository.save(Card.builder()
+                .number("5100000000009999")
+                .expirationDate(LocalDate.now().plusYears(1))
+                .status(Status.ACTIVE)
+                .balance(BigDecimal.TEN)
+                .owner(user.getUsername())
+                .user(user)
+                .build());
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.findCardByNumber("5100000000009999"));
+
+        assertTrue(cardNumberBackfill.run() >= 1);
+        CardDTO found = cardService.findCardByNumber("5100 0000 0000 9999");
+        assertEquals(legacy.getId(), found.getId());
+        assertEquals("9999", cardRepository.findById(legacy.getId()).orElseThrow().getLast4());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.CardStatsDTO;
+import com.example.bankcards.dto.CardStatusFilter;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stats_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "cards.seed.users=10",
+        "cards.expiration.enabled=false"
+})
+@ActiveProfiles("h2")
+class CardStatisticsTest {
+
+    @Autowired
+    private CardStatistics cardStatistics;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void countersFollowCardChangesAndMatchRebuild() {
+        cardStatistics.rebuild();
+        CardStatsDTO before = cardStatistics.getStats();
+        assertEquals(0, before.getLastRebuildCorrection());
+        assertEquals(before.getTotalCards(), before.getCardsByStatus().values().stream().mapToLong(Long::longValue).sum());
+
+        User user = userRepository.findByNaturalUsername("user3").orElseThrow();
+        CardDTO request = new CardDTO();
+        request.setNumber("4400000000000001");
+        request.setUserId(user.getId());
+        request.setBalance(new BigDecimal("12.34"));
+        CardDTO created = cardService.createCard(request);
+
+        CardStatsDTO afterCreate = cardStatistics.getStats();
+        assertEquals(before.getTotalCards() + 1, afterCreate.getTotalCards());
+        assertEquals(before.getTotalBalance().add(new BigDecimal("12.34")), afterCreate.getTotalBalance());
+        assertEquals(before.getCardsByStatus().get("ACTIVE") + 1, afterCreate.getCardsByStatus().get("ACTIVE"));
+        assertEquals(before.getUsersWithCards(), afterCreate.getUsersWithCards());
+
+        cardService.blockCard(created.getId());
+        CardStatusFilter byOwner = new CardStatusFilter();
+        byOwner.setUserId(user.getId());
+        cardService.bulkUpdateStatus(byOwner, Status.BLOCKED);
+        CardStatsDTO afterBlock = cardStatistics.getStats();
+        assertEquals(afterCreate.getTotalCards(), afterBlock.getTotalCards());
+        assertTrue(afterBlock.getCardsByStatus().get("BLOCKED") >= 2);
+
+        cardService.deleteCard(created.getId());
+        CardStatsDTO incremental = cardStatistics.getStats();
+        assertEquals(before.getTotalCards(), incremental.getTotalCards());
+        assertEquals(before.getTotalBalance(), incremental.getTotalBalance());
+
+        // Пересчет из БД не находит расхождений со счетчиками
+        cardStatistics.rebuild();
+        CardStatsDTO rebuilt = cardStatistics.getStats();
+        assertEquals(0, rebuilt.getLastRebuildCorrection());
+        assertEquals(incremental.getCardsByStatus(), rebuilt.getCardsByStatus());
+        assertEquals(incremental.getTotalBalance(), rebuilt.getTotalBalance());
+        assertEquals(incremental.getUsersByCardCount(), rebuilt.getUsersByCardCount());
+        assertEquals(incremental.getExpiringNextMonth(), rebuilt.getExpiringNextMonth());
+    }
+}
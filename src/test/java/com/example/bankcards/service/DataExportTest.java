@@ -0,0 +1,67 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.UserDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "cards.seed.users=10")
+@ActiveProfiles("h2")
+class DataExportTest {
+
+    @Autowired
+    private CardExportService cardExportService;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void usersAreExportedAsGzippedCsvWithSelectedColumns() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<ExportColumn<UserDTO>> columns = userExportService.columns(List.of("username", "roles"));
+        long rows = userExportService.exportUsers(out, ExportFormat.CSV, columns, true);
+
+        String csv;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = csv.lines().toList();
+        assertEquals(rows + 1, lines.size());
+        assertEquals("username,roles", lines.get(0));
+        assertTrue(lines.contains("admin,ROLE_ADMIN"));
+        assertTrue(lines.contains("user0,ROLE_USER"));
+    }
+
+    @Test
+    void cardsAreExportedAsNdjsonWithMaskedNumbers() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<ExportColumn<CardDTO>> columns = cardExportService.columns(List.of("id", "number", "balance"));
+        long rows = cardExportService.exportCards(out, ExportFormat.NDJSON, columns, false);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(rows, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals(3, first.size());
+        assertTrue(first.get("number").asText().startsWith("**** **** **** "));
+    }
+
+    @Test
+    void unknownColumnIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> cardExportService.columns(List.of("pan")));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.IdempotentResponse;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "cards.seed.users=10")
+@ActiveProfiles("h2")
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Test
+    void concurrentRetriesExecuteWorkOnce() throws Exception {
+        TransferRequest request = transferRequest("10");
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Object>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return idempotencyService.executeAtomically("alice", "concurrent", "transfer", request, () -> {
+                            executions.incrementAndGet();
+                            sleep(100);
+                            return "done";
+                        });
+                    } catch (IdempotencyKeyException e) {
+                        return e.getStatus();
+                    }
+                }));
+            }
+            start.countDown();
+        }
+
+        assertEquals(1, executions.get());
+        for (Future<Object> future : futures) {
+            Object outcome = future.get();
+            if (outcome instanceof IdempotentResponse response) {
+                assertEquals("\"done\"", response.getBody());
+            } else {
+                assertEquals(HttpStatus.CONFLICT, outcome);
+            }
+        }
+
+        IdempotentResponse replay = idempotencyService.executeAtomically("alice", "concurrent", "transfer", request,
+                () -> fail("Replay must not execute work"));
+        assertTrue(replay.isReplayed());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void keyReusedWithDifferentRequestIsRejected() {
+        idempotencyService.executeClaimed("bob", "reused", "transfer", transferRequest("10"), () -> null);
+
+        IdempotencyKeyException e = assertThrows(IdempotencyKeyException.class, () ->
+                idempotencyService.executeClaimed("bob", "reused", "transfer", transferRequest("11"), () -> null));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatus());
+    }
+
+    @Test
+    void failedWorkReleasesClaimedKey() {
+        TransferRequest request = transferRequest("10");
+        assertThrows(IllegalArgumentException.class, () ->
+                idempotencyService.executeClaimed("carol", "retry", "transfer", request, () -> {
+                    throw new IllegalArgumentException("Insufficient funds");
+                }));
+
+        IdempotentResponse response = idempotencyService.executeClaimed("carol", "retry", "transfer", request, () -> "ok");
+        assertFalse(response.isReplayed());
+        assertEquals("\"ok\"", response.getBody());
+    }
+
+    @Test
+    void expiredKeyIsReusedBeforePurge() {
+        expiredRecord("dave:expired-atomic");
+        IdempotentResponse atomic = idempotencyService.executeAtomically("dave", "expired-atomic", "transfer",
+                transferRequest("12"), () -> "fresh");
+        assertFalse(atomic.isReplayed());
+        assertEquals("\"fresh\"", atomic.getBody());
+
+        expiredRecord("dave:expired-claimed");
+        IdempotentResponse claimed = idempotencyService.executeClaimed("dave", "expired-claimed", "transfers/batch",
+                transferRequest("12"), () -> "fresh");
+        assertFalse(claimed.isReplayed());
+        assertEquals("\"fresh\"", claimed.getBody());
+    }
+
+    /** Запись с истекшим TTL, которую purgeExpired еще не удалил */
+    private void expiredRecord(String id) {
+        LocalDateTime createdAt = LocalDateTime.now().minusDays(2);
+        repository.save(IdempotencyRecord.builder()
+                .id(id)
+                .requestHash("stale")
+                .responseStatus(HttpStatus.OK.value())
+                .responseBody("\"stale\"")
+                .createdAt(createdAt)
+                .expiresAt(createdAt.plusDays(1))
+                .build());
+    }
+
+    private static TransferRequest transferRequest(String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(1L);
+        request.setToCardId(2L);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDTO;
+import com.example.bankcards.dto.LockRequestClaim;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Status;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lock_request_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "cards.seed.users=10"
+})
+@ActiveProfiles("h2")
+class LockRequestQueueServiceTest {
+
+    @Autowired
+    private LockRequestQueueService queueService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardService cardService;
+
+    @Test
+    void workersClaimDisjointRequestsAndResolveOnlyTheirOwn() {
+        User user = userRepository.findByNaturalUsername("user6").orElseThrow();
+        for (int i = 1; i <= 3; i++) {
+            cardRepository.save(Card.builder()
+                    .number("430000000000000" + i)
+                    .expirationDate(LocalDate.now().plusYears(1))
+                    .status(Status.LOCK_REQUEST)
+                    .balance(BigDecimal.TEN)
+                    .owner(user.getUsername())
+                    .user(user)
+                    .build());
+        }
+
+        LockRequestClaim first = queueService.claim("admin-a", 2);
+        LockRequestClaim second = queueService.claim("admin-b", 10);
+        List<Long> firstIds = first.getCards().stream().map(CardDTO::getId).toList();
+        List<Long> secondIds = second.getCards().stream().map(CardDTO::getId).toList();
+        assertEquals(2, firstIds.size());
+        assertEquals(1, secondIds.size());
+        assertFalse(firstIds.contains(secondIds.get(0)));
+        assertEquals(0, queueService.claim("admin-c", 10).getCards().size());
+        assertEquals(3L, queueService.getStats().get("claimed"));
+
+        // Чужая заявка не меняется
+        List<Long> approveIds = new ArrayList<>(firstIds);
+        approveIds.addAll(secondIds);
+        assertEquals(2, queueService.approve(approveIds, "admin-a").getUpdated());
+        assertEquals(1, queueService.reject(secondIds, "admin-b").getUpdated());
+
+        firstIds.forEach(id -> assertEquals(Status.BLOCKED, cardRepository.findById(id).orElseThrow().getStatus()));
+        assertEquals(Status.ACTIVE, cardRepository.findById(secondIds.get(0)).orElseThrow().getStatus());
+        assertEquals(0L, queueService.getStats().get("depth"));
+    }
+
+    @Test
+    void rejectedRequestNeverReactivatesBlockedOrExpiredCards() {
+        User user = userRepository.findByNaturalUsername("user7").orElseThrow();
+        Card blocked = cardRepository.save(Card.builder()
+                .number("4300000000000011")
+                .expirationDate(LocalDate.now().plusYears(1))
+                .status(Status.BLOCKED)
+                .balance(BigDecimal.TEN)
+                .owner(user.getUsername())
+                .user(user)
+                .build());
+        Authentication owner = new UsernamePasswordAuthenticationToken(user.getUsername(), null, List.of());
+        assertThrows(IllegalArgumentException.class, () -> cardService.blocQueryCard(blocked.getId(), owner));
+        assertEquals(Status.BLOCKED, cardRepository.findById(blocked.getId()).orElseThrow().getStatus());
+
+        // Срок истек, пока заявка ждала в очереди: отклонение не делает карту активной
+        Card expired = cardRepository.save(Card.builder()
+                .number("4300000000000012")
+                .expirationDate(LocalDate.now().minusDays(1))
+                .status(Status.LOCK_REQUEST)
+                .balance(BigDecimal.TEN)
+                .owner(user.getUsername())
+                .user(user)
+                .build());
+        List<Long> claimed = queueService.claim("admin-d", 10).getCards().stream().map(CardDTO::getId).toList();
+        assertTrue(claimed.contains(expired.getId()));
+        assertEquals(0, queueService.reject(List.of(expired.getId()), "admin-d").getUpdated());
+        assertEquals(Status.LOCK_REQUEST, cardRepository.findById(expired.getId()).orElseThrow().getStatus());
+        // Заявка не должна остаться в очереди для других тестов этого контекста
+        cardRepository.deleteAllById(List.of(blocked.getId(), expired.getId()));
+    }
+}